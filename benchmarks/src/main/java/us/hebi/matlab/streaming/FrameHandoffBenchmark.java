@@ -0,0 +1,67 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.FrameGrabber;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how quickly a consumer receives frames from a running BackgroundFrameGrabber,
+ * i.e., the cost of acquiring a frame including the handoff from the acquisition thread.
+ * The synthetic grabber produces frames as fast as they can be converted.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameHandoffBenchmark {
+
+    @Param({"320x240", "640x480", "1920x1080"})
+    String resolution;
+
+    @Param({"1", "3"})
+    int channels;
+
+    @Param({"3"})
+    int numSlots;
+
+    @Setup
+    public void setup() throws FrameGrabber.Exception {
+        int[] size = SyntheticFrameGrabber.parseResolution(resolution);
+        grabber = new BackgroundFrameGrabber(new SyntheticFrameGrabber(size[0], size[1], channels), numSlots);
+        grabber.start();
+    }
+
+    @TearDown
+    public void tearDown() throws FrameGrabber.Exception {
+        grabber.stop();
+    }
+
+    @Benchmark
+    public int lockNextImage() {
+        int slot = grabber.tryGetNextImageSlot();
+        grabber.tryReleaseImageLock();
+        if (slot < 0)
+            throw new IllegalStateException("Timed out waiting for a frame");
+        return slot;
+    }
+
+    BackgroundFrameGrabber grabber;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FrameHandoffBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,77 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes each converter to write a frame in MATLAB's format. Run with
+ * the 'gc' profiler (java -jar benchmarks.jar -prof gc) to see the allocation rate.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatlabImageConverterBenchmark {
+
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    String resolution;
+
+    @Param({"BGR", "FusedBGR", "ParallelBGR", "Grayscale", "ParallelGrayscale"})
+    String converter;
+
+    @Setup
+    public void setup() {
+        int[] size = SyntheticFrameGrabber.parseResolution(resolution);
+        int width = size[0];
+        int height = size[1];
+
+        if ("BGR".equals(converter)) {
+            matlabImageConverter = new MatlabImageConverterBGR(width, height);
+        } else if ("FusedBGR".equals(converter)) {
+            matlabImageConverter = new MatlabImageConverterFusedBGR(width, height);
+        } else if ("ParallelBGR".equals(converter)) {
+            matlabImageConverter = new MatlabImageConverterParallel(width, height, 3);
+        } else if ("Grayscale".equals(converter)) {
+            matlabImageConverter = new MatlabImageConverterGrayscale(width, height);
+        } else if ("ParallelGrayscale".equals(converter)) {
+            matlabImageConverter = new MatlabImageConverterParallel(width, height, 1);
+        } else {
+            throw new IllegalArgumentException("Unknown converter: " + converter);
+        }
+
+        int channels = converter.endsWith("BGR") ? 3 : 1;
+        frame = SyntheticFrameGrabber.createFrame(width, height, channels);
+        buffer = ByteBuffer.allocateDirect(width * height * channels);
+    }
+
+    @Benchmark
+    public ByteBuffer writeFrameToBuffer() {
+        buffer.clear();
+        matlabImageConverter.writeFrameToBuffer(frame, buffer);
+        return buffer;
+    }
+
+    MatlabImageConverter matlabImageConverter;
+    Frame frame;
+    ByteBuffer buffer;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MatlabImageConverterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
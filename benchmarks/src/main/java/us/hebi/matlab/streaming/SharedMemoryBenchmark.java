@@ -0,0 +1,112 @@
+package us.hebi.matlab.streaming;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time it takes to write an already converted color frame into the
+ * next slot of a memory mapped file for each backing store. Stores that are not
+ * available fall back to another store, which gets printed during the setup.
+ * <p>
+ * writeSlot measures the steady state. writeFirstFrame writes into freshly mapped
+ * memory and includes the page faults that pre-touching moves to the allocation.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SharedMemoryBenchmark {
+
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    String resolution;
+
+    @Param({"3"})
+    int numSlots;
+
+    @Param({"cwd", "tmpfs", "hugepages"})
+    String store;
+
+    @Param({"false", "true"})
+    boolean preTouch;
+
+    @Setup
+    public void setup() {
+        int[] size = SyntheticFrameGrabber.parseResolution(resolution);
+        pixels = new byte[size[0] * size[1] * 3];
+        new Random(0).nextBytes(pixels);
+        sharedMemory = allocate();
+        System.out.println("Backing store: " + sharedMemory.getBackingStore());
+    }
+
+    SharedMemory allocate() {
+        return SharedMemory.allocate(0, 16 + pixels.length, numSlots, BackingStore.forName(store).withPreTouch(preTouch));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sharedMemory.close();
+    }
+
+    @Benchmark
+    public ByteBuffer writeSlot() {
+        slot = (slot + 1) % numSlots;
+        ByteBuffer buffer = sharedMemory.clearSlotBuffer(slot);
+        buffer.putLong(slot);
+        buffer.putDouble(0);
+        buffer.put(pixels);
+        return buffer;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 20)
+    public ByteBuffer writeFirstFrame(FreshMemory fresh) {
+        ByteBuffer buffer = fresh.sharedMemory.clearSlotBuffer(0);
+        buffer.putLong(0);
+        buffer.putDouble(0);
+        buffer.put(pixels);
+        return buffer;
+    }
+
+    @State(Scope.Thread)
+    public static class FreshMemory {
+
+        @Setup(Level.Invocation)
+        public void setup(SharedMemoryBenchmark benchmark) {
+            sharedMemory = benchmark.allocate();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            sharedMemory.close();
+        }
+
+        SharedMemory sharedMemory;
+
+    }
+
+    SharedMemory sharedMemory;
+    byte[] pixels;
+    int slot = 0;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SharedMemoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
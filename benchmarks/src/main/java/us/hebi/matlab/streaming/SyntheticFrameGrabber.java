@@ -0,0 +1,70 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Grabber that returns the same pre-generated frame as fast as it gets called
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class SyntheticFrameGrabber extends FrameGrabber {
+
+    /**
+     * @return 8 bit frame with random pixels
+     */
+    static Frame createFrame(int width, int height, int channels) {
+        Frame frame = new Frame(width, height, Frame.DEPTH_UBYTE, channels);
+        ByteBuffer pixels = (ByteBuffer) frame.image[0];
+        byte[] data = new byte[pixels.capacity()];
+        new Random(0).nextBytes(data);
+        pixels.clear();
+        pixels.put(data).clear();
+        return frame;
+    }
+
+    /**
+     * @param resolution e.g. "640x480"
+     */
+    static int[] parseResolution(String resolution) {
+        String[] parts = resolution.split("x");
+        return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    public SyntheticFrameGrabber(int width, int height, int channels) {
+        this.frame = createFrame(width, height, channels);
+        this.imageWidth = width;
+        this.imageHeight = height;
+        this.timeout = 1000;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void trigger() {
+    }
+
+    @Override
+    public Frame grab() {
+        frameNumber++;
+        timestamp = System.nanoTime() / 1000;
+        return frame;
+    }
+
+    @Override
+    public void release() {
+    }
+
+    private final Frame frame;
+
+}
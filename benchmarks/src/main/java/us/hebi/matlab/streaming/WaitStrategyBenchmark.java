@@ -0,0 +1,86 @@
+package us.hebi.matlab.streaming;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how quickly a waiting reader notices a published frame for each wait strategy.
+ * The benchmark thread publishes a request and waits for an echo thread to publish the
+ * response, so every sample covers two wake-ups. Both threads use the same strategy.
+ * <p>
+ * Spinning strategies need a spare core per waiting thread. On machines with fewer cores
+ * the threads have to take turns and the latency is dominated by the scheduler.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaitStrategyBenchmark {
+
+    @Param({"BLOCK", "SPIN_THEN_PARK", "BUSY_SPIN"})
+    WaitStrategy strategy;
+
+    @Setup
+    public void setup() {
+        requests = new SlotRing(3);
+        responses = new SlotRing(3);
+        requests.setWaitStrategy(strategy);
+        responses.setWaitStrategy(strategy);
+        echo = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (running) {
+                        if (requests.acquireNextReadSlot(1000) < 0)
+                            continue;
+                        responses.acquireWriteSlot(0);
+                        responses.publish();
+                    }
+                } catch (InterruptedException e) {
+                    // Stopped
+                }
+            }
+        }, "wait-strategy-echo");
+        echo.setDaemon(true);
+        echo.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        requests.close();
+        echo.join();
+        responses.close();
+    }
+
+    @Benchmark
+    public int roundTrip() throws InterruptedException {
+        requests.acquireWriteSlot(0);
+        requests.publish();
+        int slot = responses.acquireNextReadSlot(1000);
+        if (slot < 0)
+            throw new IllegalStateException("Timed out waiting for the echo");
+        return slot;
+    }
+
+    SlotRing requests;
+    SlotRing responses;
+    Thread echo;
+    volatile boolean running = true;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WaitStrategyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
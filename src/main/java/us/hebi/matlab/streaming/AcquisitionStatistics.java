@@ -0,0 +1,142 @@
+package us.hebi.matlab.streaming;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the per-stage timings and frame counters of a {@link BackgroundFrameGrabber}.
+ * Recording only touches preallocated counters, so it is cheap enough to be always on.
+ * <p>
+ * All methods except {@link #recordConsumed(int)} get called by the acquisition thread.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class AcquisitionStatistics implements FrameGrabberStatisticsMXBean {
+
+    AcquisitionStatistics(int numSlots) {
+        this.publishNanos = new long[numSlots];
+    }
+
+    void recordFirstFrame(long nanos) {
+        timeToFirstFrameNanos = nanos;
+    }
+
+    void recordGrab(long nanos) {
+        grabLatency.record(nanos);
+    }
+
+    void recordNullFrame() {
+        nullFrames.incrementAndGet();
+    }
+
+    void recordLockWait(long nanos) {
+        lockWaitLatency.record(nanos);
+    }
+
+    void recordConversion(long nanos) {
+        conversionLatency.record(nanos);
+    }
+
+    void recordSkipped() {
+        skippedFrames.incrementAndGet();
+    }
+
+    void recordDropped() {
+        droppedFrames.incrementAndGet();
+    }
+
+    void recordReconnect() {
+        reconnects.incrementAndGet();
+    }
+
+    /**
+     * Needs to be called before the slot gets handed to readers, so that
+     * the publish time is visible to them.
+     */
+    void recordPublished(int slot) {
+        long now = System.nanoTime();
+        publishNanos[slot] = now;
+        producedFrames.incrementAndGet();
+
+        // Smooth the frame interval with a time constant of about one second
+        long previous = lastPublishNanos;
+        if (previous != 0) {
+            double interval = now - previous;
+            double alpha = Math.min(1, interval / FPS_TIME_CONSTANT_NANOS);
+            double average = averageIntervalNanos;
+            averageIntervalNanos = average == 0 ? interval : average + alpha * (interval - average);
+        }
+        lastPublishNanos = now;
+    }
+
+    /**
+     * Gets called by readers after they locked a new slot
+     */
+    void recordConsumed(int slot) {
+        consumedFrames.incrementAndGet();
+        publishToConsumeLatency.record(System.nanoTime() - publishNanos[slot]);
+    }
+
+    @Override
+    public FrameGrabberStatistics getStatistics() {
+        return new FrameGrabberStatistics(
+                producedFrames.get(),
+                droppedFrames.get(),
+                nullFrames.get(),
+                skippedFrames.get(),
+                consumedFrames.get(),
+                reconnects.get(),
+                getFramesPerSecond(),
+                timeToFirstFrameNanos / 1E6,
+                grabLatency.snapshot(),
+                lockWaitLatency.snapshot(),
+                conversionLatency.snapshot(),
+                publishToConsumeLatency.snapshot());
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        double interval = averageIntervalNanos;
+        long last = lastPublishNanos;
+        if (interval == 0 || last == 0)
+            return 0;
+
+        // Let the rate decay if the stream stalls
+        interval = Math.max(interval, System.nanoTime() - last);
+        return 1E9 / interval;
+    }
+
+    @Override
+    public void resetStatistics() {
+        producedFrames.set(0);
+        droppedFrames.set(0);
+        nullFrames.set(0);
+        skippedFrames.set(0);
+        consumedFrames.set(0);
+        reconnects.set(0);
+        grabLatency.reset();
+        lockWaitLatency.reset();
+        conversionLatency.reset();
+        publishToConsumeLatency.reset();
+    }
+
+    private static final double FPS_TIME_CONSTANT_NANOS = 1E9;
+
+    private final AtomicLong producedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong nullFrames = new AtomicLong();
+    private final AtomicLong skippedFrames = new AtomicLong();
+    private final AtomicLong consumedFrames = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private final LatencyHistogram grabLatency = new LatencyHistogram();
+    private final LatencyHistogram lockWaitLatency = new LatencyHistogram();
+    private final LatencyHistogram conversionLatency = new LatencyHistogram();
+    private final LatencyHistogram publishToConsumeLatency = new LatencyHistogram();
+
+    private final long[] publishNanos;
+    private volatile long lastPublishNanos = 0;
+    private volatile double averageIntervalNanos = 0;
+    private volatile long timeToFirstFrameNanos = 0; // not affected by resets
+
+}
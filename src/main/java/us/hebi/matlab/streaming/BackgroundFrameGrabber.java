@@ -25,13 +25,23 @@ package us.hebi.matlab.streaming;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static us.hebi.matlab.streaming.Preconditions.*;
 import static us.hebi.matlab.streaming.Resources.*;
 
@@ -44,45 +54,504 @@ import static us.hebi.matlab.streaming.Resources.*;
 public class BackgroundFrameGrabber {
 
     public BackgroundFrameGrabber(FrameGrabber grabber) throws FrameGrabber.Exception {
+        this(grabber, DEFAULT_NUM_SLOTS);
+    }
+
+    public BackgroundFrameGrabber(FrameGrabber grabber, int numSlots) throws FrameGrabber.Exception {
+        this(grabber, numSlots, DeliveryPolicy.LATEST);
+    }
+
+    /**
+     * @param grabber  source of the frames
+     * @param numSlots number of frames that fit into shared memory. Three or more slots let
+     *                 the acquisition thread continue while a reader is still copying data.
+     *                 Queued policies can hold up to numSlots - 1 frames while a reader holds
+     *                 a slot.
+     * @param policy   whether readers get the latest frame or drain a queue of frames in order
+     */
+    public BackgroundFrameGrabber(FrameGrabber grabber, int numSlots, DeliveryPolicy policy) throws FrameGrabber.Exception {
+        this(grabber, numSlots, policy, StandardOutputFormat.AUTO.getName());
+    }
+
+    /**
+     * @param outputFormat name of the format that frames get converted to on the acquisition thread, i.e., "auto",
+     *                     "rgb8", "gray8", "single", "mono16", "ycbcr8", or the name of a registered
+     *                     {@link MatlabImageConverterProvider}. See {@link #getOutputFormats()}.
+     */
+    public BackgroundFrameGrabber(FrameGrabber grabber, int numSlots, DeliveryPolicy policy, String outputFormat) throws FrameGrabber.Exception {
+        this(grabber, numSlots, policy, outputFormat, BackingStore.getDefault());
+    }
+
+    /**
+     * @param store file system that backs the shared memory, e.g., tmpfs or huge pages
+     */
+    public BackgroundFrameGrabber(FrameGrabber grabber, int numSlots, DeliveryPolicy policy, String outputFormat, BackingStore store) throws FrameGrabber.Exception {
+        this.backingStore = checkNotNull(store, "Store can't be empty");
+        this.outputFormat = MatlabImageConverters.get(outputFormat);
         this.grabber = checkNotNull(grabber, "FrameGrabber can't be empty");
         this.grabberTimeoutMs = this.grabber.getTimeout();
+        this.slotRing = new SlotRing(numSlots, policy);
+        this.slotFrameNumbers = new long[numSlots];
+        this.statistics = new AcquisitionStatistics(numSlots);
 
         // Grab first frame to initialize converter and shared memory with correct dimensions
-        grabber.start();
-        Frame frame = grabber.grabFrame();
+        GrabberFactory.negotiatePixelFormat(grabber, this.outputFormat);
+        long startNanos = System.nanoTime();
+        Frame frame = GrabberStarter.start(grabber);
+        statistics.recordFirstFrame(System.nanoTime() - startNanos);
         channels = frame.imageChannels;
+        outputChannels = this.outputFormat.getOutputChannels(channels, frame.imageDepth);
+        if (outputChannels <= 0) {
+            grabber.stop();
+            throw new IllegalArgumentException("Output format '" + this.outputFormat.getName() + "' does not support "
+                    + channels + " channel images with a depth of " + frame.imageDepth + " bits");
+        }
+        bytesPerSample = MatlabImageConverters.getBytesPerSample(this.outputFormat.getMatlabClass());
+
+        imageWidth = frame.imageWidth;
+        imageHeight = frame.imageHeight;
+        sourceTemplate = frame.image != null ? frame.image[0] : null;
+        matlabImageConverter = createConverter(imageWidth, imageHeight, false);
+
+        // The header describes the pixel data, so readers can map it without asking Java
+        formatOffset = SEQUENCE_OFFSET + numSlots * 8;
+        frameBytes = frame.imageWidth * frame.imageHeight * outputChannels * bytesPerSample;
+        sharedMemory = SharedMemory.allocate(formatOffset + FORMAT_BYTES, HEADER_BYTES + frameBytes, numSlots, store);
+        writeFormatHeader(sharedMemory);
+
+    }
+
+    /**
+     * Same as the constructor, but connects to the source and waits for the first frame on a
+     * background thread, so that multiple cameras can be opened concurrently. The returned
+     * grabber still needs to be started.
+     *
+     * @return future that completes once the first frame has arrived and the shared memory exists
+     */
+    public static Future<BackgroundFrameGrabber> openAsync(final FrameGrabber grabber, final int numSlots, final DeliveryPolicy policy,
+                                                           final String outputFormat, final BackingStore store) {
+        return GrabberStarter.submit(new Callable<BackgroundFrameGrabber>() {
+            @Override
+            public BackgroundFrameGrabber call() throws FrameGrabber.Exception {
+                return new BackgroundFrameGrabber(grabber, numSlots, policy, outputFormat, store);
+            }
+        });
+    }
 
+    private void writeFormatHeader(SharedMemory memory) {
+        ByteBuffer header = memory.clearHeaderBuffer();
+        header.putLong(LATEST_SLOT_OFFSET, -1);
+        header.position(formatOffset);
+        byte[] matlabClass = outputFormat.getMatlabClass().getBytes(Charset.forName("US-ASCII"));
+        header.put(matlabClass, 0, Math.min(matlabClass.length, 8));
+        header.position(formatOffset + 8);
+        header.putInt(outputChannels).putInt(bytesPerSample);
+        header.putLong(generation).putInt(imageWidth).putInt(imageHeight);
+    }
+
+    /**
+     * @return names of all available output formats
+     */
+    public static String[] getOutputFormats() {
+        List<String> names = MatlabImageConverters.getNames();
+        return names.toArray(new String[names.size()]);
+    }
+
+    private MatlabImageConverter createConverter(int width, int height, boolean parallel) {
+        return outputFormat.create(width, height, channels, parallel);
+    }
+
+    static MatlabImageConverter createConverter(int imageWidth, int imageHeight, int channels, boolean parallel) {
+        if (parallel)
+            return new MatlabImageConverterParallel(imageWidth, imageHeight, channels);
         switch (channels) {
             case 3:
-                matlabImageConverter = new MatlabImageConverterBGR(frame.imageWidth, frame.imageHeight);
-                break;
+                // The fused converter only measured faster than OpenCV for 4K frames
+                if ((long) imageWidth * imageHeight >= FUSED_BGR_MIN_PIXELS)
+                    return new MatlabImageConverterFusedBGR(imageWidth, imageHeight);
+                return new MatlabImageConverterBGR(imageWidth, imageHeight);
             case 1:
-                matlabImageConverter = new MatlabImageConverterGrayscale(frame.imageWidth, frame.imageHeight);
-                break;
+                return new MatlabImageConverterGrayscale(imageWidth, imageHeight);
             default:
                 throw new IllegalArgumentException("Unsupported number of channels: " + channels);
         }
+    }
 
-        sharedMemory = SharedMemory.allocate(HEADER_BYTES + frame.imageWidth * frame.imageHeight * channels);
+    /**
+     * Splits each frame into column tiles that get converted on a thread pool that is shared
+     * by all grabbers. This helps to keep up with high resolution streams, but adds some overhead
+     * for small images. Can be changed while the acquisition is running.
+     *
+     * @param enabled true to convert frames on multiple cores
+     */
+    public void setParallelConversion(boolean enabled) {
+        synchronized (geometryLock) {
+            parallelConversion = enabled;
+            matlabImageConverter = createConverter(imageWidth, imageHeight, enabled);
+            Region roi = region;
+            if (roi != null)
+                region = new Region(roi.x, roi.y, roi.width, roi.height, createConverter(roi.width, roi.height, enabled));
+        }
+    }
+
+    /**
+     * Restricts the conversion to a rectangular region of the image, e.g., a tracking window.
+     * Only the pixels inside the region get converted and written to shared memory. The region
+     * can be moved at any time and applies to the next converted frame. Moving a region of the
+     * same size keeps the converter and the shared memory, and only creates lightweight views of
+     * the new position for the first frames that use it. The region of each frame is stored in its slot.
+     *
+     * @param x      zero based column of the top left corner
+     * @param y      zero based row of the top left corner
+     * @param width  number of columns
+     * @param height number of rows
+     */
+    public void setRegionOfInterest(int x, int y, int width, int height) {
+        checkArgument(x >= 0 && y >= 0 && width > 0 && height > 0, "Region must not be empty");
+        synchronized (geometryLock) {
+            checkArgument(x + width <= imageWidth && y + height <= imageHeight, "Region must be within the image");
+            Region previous = region;
+            MatlabImageConverter converter = previous != null && previous.width == width && previous.height == height
+                    ? previous.converter
+                    : createConverter(width, height, parallelConversion);
+            region = new Region(x, y, width, height, converter);
+        }
+    }
+
+    /**
+     * Converts the full image again
+     */
+    public void clearRegionOfInterest() {
+        region = null;
+    }
+
+    /**
+     * Defers the conversion of frames until a reader requests the next frame. The acquisition
+     * thread then only decodes and copies each frame, so cameras that rarely get read cost
+     * little more than decoding. Readers convert the most recent frame themselves, so each
+     * request takes longer. Only supported for the LATEST delivery policy.
+     *
+     * @param enabled true to convert frames on demand. Needs to be set before calling start().
+     */
+    public void setLazyConversion(boolean enabled) {
+        checkState(!started, "Lazy conversion needs to be set before starting the acquisition");
+        checkState(!enabled || getDeliveryPolicy() == DeliveryPolicy.LATEST, "Lazy conversion requires the LATEST delivery policy");
+        checkState(!enabled || pipelineFrames == null, "Lazy conversion can't be combined with pipelined conversion");
+        lazyFrames = enabled ? createHandoff(3, DeliveryPolicy.LATEST) : null;
+    }
 
+    /**
+     * Converts frames on a separate thread, so that decoding the next frame overlaps with
+     * converting the current one. The acquisition thread only decodes and copies each frame
+     * into one of two buffers, so the frame rate is limited by the slower of the two stages
+     * rather than by their sum. Costs an extra copy per frame and a second core.
+     * <p>
+     * Frames that arrive while the conversion is still busy replace the waiting frame for the
+     * LATEST policy. Queued policies make the acquisition wait, so that every frame gets
+     * converted and the delivery policy applies to the shared memory as usual.
+     *
+     * @param enabled true to convert on a separate thread. Needs to be set before calling start().
+     */
+    public void setPipelinedConversion(boolean enabled) {
+        checkState(!started, "Pipelined conversion needs to be set before starting the acquisition");
+        checkState(!enabled || lazyFrames == null, "Pipelined conversion can't be combined with lazy conversion");
+        DeliveryPolicy handoffPolicy = getDeliveryPolicy().isQueued() ? DeliveryPolicy.QUEUE_BLOCK : DeliveryPolicy.LATEST;
+        pipelineFrames = enabled ? createHandoff(2, handoffPolicy) : null;
+    }
+
+    /**
+     * Allocates the copies up front, so that the acquisition thread doesn't have to
+     */
+    private FrameHandoff createHandoff(int numFrames, DeliveryPolicy policy) {
+        FrameHandoff handoff = new FrameHandoff(numFrames, policy);
+        if (sourceTemplate instanceof ByteBuffer || sourceTemplate instanceof ShortBuffer)
+            handoff.preallocate(sourceTemplate);
+        return handoff;
+    }
+
+    /**
+     * Keeps copies of the last N converted frames in a separate shared memory region that
+     * holds all pixels as a single HxWxCxN block, so that a burst of frames can be copied
+     * with a single lock. Frames with a region of interest don't get stored.
+     *
+     * @param length number of frames, or zero to disable the history. Needs to be set before calling start().
+     */
+    public void setHistoryLength(int length) throws IOException {
+        checkState(!started, "History needs to be set before starting the acquisition");
+        checkArgument(length >= 0, "History length can't be negative");
+        if (history != null)
+            history.close();
+        history = length > 0 ? new FrameHistory(length, frameBytes, backingStore) : null;
+    }
+
+    public int getHistoryLength() {
+        return history != null ? history.getLength() : 0;
+    }
+
+    /**
+     * @return file that backs the history. The header is [uint64 count][uint64 frame[N]][double timestamp[N]]
+     * and gets followed by the pixels of all N frames. The newest frame is at the zero based index (count-1) % N.
+     */
+    public File getHistoryFile() {
+        checkState(history != null, "History is not enabled");
+        return history.getBackingFile();
     }
 
+    public int getHistoryHeaderBytes() {
+        checkState(history != null, "History is not enabled");
+        return history.getHeaderBytes();
+    }
+
+    /**
+     * Prevents the history from changing while it gets copied. Frames that arrive in the
+     * meantime don't get added to the history, but still get delivered as usual.
+     *
+     * @return total number of frames that have been added to the history
+     */
+    public long lockHistory() throws InterruptedException {
+        checkState(history != null, "History is not enabled");
+        return history.lock();
+    }
+
+    public void releaseHistory() {
+        checkState(history != null, "History is not enabled");
+        history.release();
+    }
+
+    /**
+     * Restarts the grabber if the source disconnects, i.e., if the grabber throws an exception or
+     * delivers no frames for longer than the timeout. Reconnecting keeps the shared memory, so
+     * readers don't need to remap anything.
+     *
+     * @param timeoutMs max time without frames before the grabber gets restarted, or zero to never
+     *                  restart. In that case grabber exceptions stop the acquisition.
+     */
+    public void setStallTimeout(long timeoutMs) {
+        checkArgument(timeoutMs >= 0, "Timeout can't be negative");
+        stallTimeoutMs = timeoutMs;
+    }
+
+    public long getStallTimeout() {
+        return stallTimeoutMs;
+    }
+
+    /**
+     * @param initialMs wait before the first attempt to restart the grabber. Doubles after every attempt.
+     * @param maxMs     max wait between attempts
+     */
+    public void setReconnectBackoff(long initialMs, long maxMs) {
+        checkArgument(initialMs >= 0 && maxMs >= initialMs, "Backoff must be positive and below the maximum");
+        initialBackoffMs = initialMs;
+        maxBackoffMs = maxMs;
+    }
+
+    /**
+     * @return whether the source is delivering frames. Reports STALLED as soon as no frame has
+     * arrived within the stall timeout, even if the grabber is still waiting for the source.
+     */
+    public ConnectionState getConnectionState() {
+        if (!active)
+            return ConnectionState.STOPPED;
+        ConnectionState state = connectionState;
+        long timeoutMs = stallTimeoutMs;
+        if (state == ConnectionState.CONNECTED && timeoutMs > 0 && System.nanoTime() - lastFrameNanos > timeoutMs * 1000000)
+            return ConnectionState.STALLED;
+        return state;
+    }
+
+    /**
+     * @return the last exception that caused or interrupted reconnecting, or null if there was none
+     */
+    public Throwable getConnectionError() {
+        return connectionError;
+    }
+
+    /**
+     * @return height of the frames in shared memory. May change if the source changes its resolution.
+     */
     public int getHeight() {
-        return grabber.getImageHeight();
+        return imageHeight;
     }
 
+    /**
+     * @return width of the frames in shared memory. May change if the source changes its resolution.
+     */
     public int getWidth() {
-        return grabber.getImageWidth();
+        return imageWidth;
     }
 
+    /**
+     * @return counter that gets incremented whenever the frame dimensions change. Readers
+     * need to remap the shared memory once it differs from the value they have mapped.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return number of channels of the images in shared memory, which depends on the output format
+     */
     public int getChannels() {
-        return channels;
+        return outputChannels;
+    }
+
+    /**
+     * @return name of the format that frames get converted to
+     */
+    public String getOutputFormat() {
+        return outputFormat.getName();
+    }
+
+    /**
+     * @return MATLAB class of the samples in shared memory, e.g., "uint8" or "single"
+     */
+    public String getMatlabClass() {
+        return outputFormat.getMatlabClass();
+    }
+
+    public int getBytesPerSample() {
+        return bytesPerSample;
     }
 
     public String getBackingFile() {
         return sharedMemory.getBackingFile().getPath();
     }
 
+    /**
+     * @return store that backs the shared memory, which may be a fallback of the requested store
+     */
+    public BackingStore getBackingStore() {
+        return sharedMemory.getBackingStore();
+    }
+
+    /**
+     * @return number of equally sized frame slots in the backing file
+     */
+    public int getNumSlots() {
+        return sharedMemory.getNumSlots();
+    }
+
+    public DeliveryPolicy getDeliveryPolicy() {
+        return slotRing.getPolicy();
+    }
+
+    /**
+     * @return number of frames that are waiting to be read. Always zero for the LATEST policy.
+     */
+    public int getQueueSize() {
+        return slotRing.getQueueSize();
+    }
+
+    /**
+     * The backing file starts with a header that lets other processes read frames without
+     * calling into Java. The layout is [int64 latestSlot][uint64 sequence[numSlots]][char class[8]]
+     * [int32 channels][int32 bytesPerSample][uint64 generation][int32 width][int32 height], followed
+     * by the slots. The class is the zero padded name of the MATLAB class of the samples, e.g., "single".
+     * The generation gets incremented when the frame dimensions change, see {@link #getGeneration()}. The sequence of a slot is odd while it is being written and even once the
+     * data is stable. Sequences increase with every published frame, so readers can detect new
+     * frames as well as torn reads by comparing the sequence before and after copying a slot.
+     *
+     * @return number of bytes in front of the first slot
+     */
+    public int getHeaderBytes() {
+        return sharedMemory.getHeaderBytes();
+    }
+
+    /**
+     * Each slot contains [uint64 frame][double timestamp][int32 roi[4]][pixels]. The roi
+     * holds the zero based x, y, width, and height of the converted region, and the pixels
+     * of the region come first in MATLAB's column-major format with one plane per channel.
+     * Samples are of the class described in the header.
+     *
+     * @return number of bytes between the start of two slots
+     */
+    public int getSlotBytes() {
+        return sharedMemory.getSlotBytes();
+    }
+
+    /**
+     * Waits for the acquisition thread to publish a frame with a higher sequence number. This
+     * is only needed by lock-free readers in case there is no newer frame available yet.
+     *
+     * @param sequence last sequence number that has been read
+     * @return true if a newer frame has been published before the timeout
+     */
+    public boolean waitForSequenceAfter(long sequence) {
+        if (!active) return false;
+        try {
+            if (lazyFrames != null) {
+                if (slotRing.getPublishCount() <= sequence / 2)
+                    convertLatestFrame();
+                return slotRing.awaitPublishCountAbove(sequence / 2, 0);
+            }
+            return slotRing.awaitPublishCountAbove(sequence / 2, grabberTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Determines how readers wait for new frames, i.e., tryGetNextImageSlot, waitForFrameAfter,
+     * and waitForSequenceAfter. Can be changed at any time.
+     */
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        slotRing.setWaitStrategy(waitStrategy);
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return slotRing.getWaitStrategy();
+    }
+
+    /**
+     * Waits for a frame with a higher frame number, e.g., the frame after the one that has just
+     * been processed, and locks the slot that contains the most recent frame. Unlike
+     * tryGetNextImageSlot, this also returns frames that have been read before as long as they
+     * are newer than the specified frame. For queued policies this skips all queued frames.
+     *
+     * @param frameNumber frame number that the returned frame needs to exceed
+     * @param timeoutMs   max time to wait
+     * @return zero based index of the locked slot, or -1 if no such frame arrived before the timeout
+     */
+    public int waitForFrameAfter(long frameNumber, long timeoutMs) {
+        checkState(lazyFrames == null, "Waiting for specific frames is not supported for lazy conversion");
+        if (!active) {
+            tryReleaseImageLock();
+            return -1;
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (true) {
+                // Read the count first, so that frames published after the check end the wait
+                long count = slotRing.getPublishCount();
+                int slot = slotRing.acquireLatestReadSlot();
+                if (slot >= 0 && slotFrameNumbers[slot] > frameNumber) {
+                    statistics.recordConsumed(slot);
+                    return slot;
+                }
+                slotRing.releaseReadSlot();
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !slotRing.awaitPublishCountAbove(count, Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining))))
+                    return -1;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * @return snapshot of the frame counters and per-stage latencies of the acquisition
+     */
+    public FrameGrabberStatistics getStatistics() {
+        return statistics.getStatistics();
+    }
+
+    public void resetStatistics() {
+        statistics.resetStatistics();
+    }
+
     /**
      * Less-blocking call that does not wait for a new image, i.e., users read whatever is in the buffer
      *
@@ -90,16 +559,9 @@ public class BackgroundFrameGrabber {
      */
     @Deprecated // experimental non-public feature
     public boolean tryGetImageLock() {
-        // Make sure users don't have the lock already (e.g. ctrl-c in MATLAB while reading the data)
-        tryReleaseImageLock();
-
         // Immediately return if acquisition is not active
         if (!active) throw new IllegalStateException("grabber is not active");
-
-        memoryAccessLock.lock();
-        userHasLock = true;
-        return true;
-
+        return slotRing.acquireLatestReadSlot() >= 0;
     }
 
     /**
@@ -107,78 +569,176 @@ public class BackgroundFrameGrabber {
      * the lock has not been acquired.
      */
     public boolean tryGetNextImageLock() {
-        // Make sure users don't have the lock already (e.g. ctrl-c in MATLAB while reading the data)
-        tryReleaseImageLock();
+        return tryGetNextImageSlot() >= 0;
+    }
 
+    /**
+     * Waits for a new image and locks the slot that contains it. The slot stays
+     * valid until the lock gets released or the next lock is requested.
+     *
+     * @return zero based index of the locked slot, or -1 if no new image arrived before the timeout
+     */
+    public int tryGetNextImageSlot() {
         // Immediately return if acquisition is not active
-        if (!active) return false;
+        if (!active) {
+            tryReleaseImageLock();
+            return -1;
+        }
 
-        // Try locking immediately in case the image has already updated
-        if (tryLockUpdatedImage()) {
-            return true;
+        // Note that this also releases the previous slot in case users
+        // didn't release it (e.g. ctrl-c in MATLAB while reading the data)
+        try {
+            long timeoutMs = grabberTimeoutMs;
+            if (lazyFrames != null) {
+                convertLatestFrame();
+                timeoutMs = 0;
+            }
+            int slot = slotRing.acquireNextReadSlot(timeoutMs);
+            if (slot >= 0)
+                statistics.recordConsumed(slot);
+            return slot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
         }
+    }
 
-        // Wait for arrival notification or time out
-        synchronized (arrivalNotification) {
+    /**
+     * Waits for a frame that has not been converted yet and converts it on the calling thread
+     */
+    private void convertLatestFrame() throws InterruptedException {
+        FrameHandoff frames = lazyFrames;
+        synchronized (frames) {
+            // Free the slot of the previous request in case there are only few slots
+            slotRing.releaseReadSlot();
+            int index = frames.acquireNext(grabberTimeoutMs);
+            if (index < 0)
+                return;
             try {
-                arrivalNotification.wait(grabberTimeoutMs);
-            } catch (InterruptedException e) {
+                publishFrame(frames.getFrame(index), frames.getFrameNumber(index), frames.getTimestamp(index));
+            } finally {
+                frames.release();
             }
         }
-
-        // Try a final time
-        return tryLockUpdatedImage();
-
     }
 
     /**
-     * @return true if the image has updated and the lock has been acquired.
+     * @return zero based index of the slot that is currently locked by the user, or -1 if there is none
      */
-    private boolean tryLockUpdatedImage() {
-        if (hasUpdated) {
-            memoryAccessLock.lock();
-            userHasLock = true;
-            hasUpdated = false;
-            return true;
-        }
-        return false;
+    public int getImageSlot() {
+        return slotRing.getReadSlot();
     }
 
     /**
      * @return true if the user had the lock and it has been successfully released
      */
     public void tryReleaseImageLock() {
-        if (userHasLock) {
-            userHasLock = false;
-            memoryAccessLock.unlock();
-        }
+        slotRing.releaseReadSlot();
     }
 
     public void start() {
         checkState(active, "VideoInput must not have been stopped yet");
+        started = true;
         Thread thread = new Thread(acquisitionLoop);
         thread.setDaemon(true);
-        thread.setName("VideoInput-" + threadCounter.getAndIncrement());
+        thread.setName(threadName);
+        registerStatistics(thread.getName());
+        if (pipelineFrames != null) {
+            Thread conversionThread = new Thread(conversionLoop);
+            conversionThread.setDaemon(true);
+            conversionThread.setName(thread.getName() + "-convert");
+            conversionThread.start();
+        }
         thread.start();
     }
 
+    /**
+     * Makes the statistics available to JMX clients, e.g., JConsole. Failures
+     * don't affect the acquisition, so they only get logged.
+     */
+    private void registerStatistics(String name) {
+        try {
+            ObjectName objectName = new ObjectName(BackgroundFrameGrabber.class.getPackage().getName()
+                    + ":type=" + BackgroundFrameGrabber.class.getSimpleName() + ",name=" + name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(statistics, FrameGrabberStatisticsMXBean.class, true), objectName);
+            statisticsName = objectName;
+        } catch (JMException e) {
+            System.err.println("Failed to register statistics MBean: " + e.getMessage());
+        }
+    }
+
+    private void unregisterStatistics() {
+        if (statisticsName == null)
+            return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(statisticsName);
+        } catch (JMException e) {
+            System.err.println("Failed to unregister statistics MBean: " + e.getMessage());
+        }
+        statisticsName = null;
+    }
+
+    /**
+     * Writes a copy of every grabbed frame to the recorder, e.g., a {@link RawSegmentRecorder} or
+     * {@link FFmpegRecorder}. Frames get recorded before the conversion, in the original format
+     * of the grabber. The recorder runs on its own thread and drops frames rather than slowing
+     * down the acquisition. Can be called at any time, but only one recorder can be active.
+     *
+     * @param recorder recorder that has not been started before
+     */
+    public synchronized void startRecording(BackgroundRecorder recorder) {
+        checkNotNull(recorder, "Recorder can't be empty");
+        checkState(active, "VideoInput must not have been stopped yet");
+        checkState(this.recorder == null, "Recording is already in progress");
+        recorder.start(sourceTemplate, threadName + "-record");
+        this.recorder = recorder;
+    }
+
+    /**
+     * Detaches the current recorder and waits until all queued frames have been written.
+     *
+     * @return the stopped recorder, or null if nothing was recording
+     */
+    public synchronized BackgroundRecorder stopRecording() throws InterruptedException {
+        BackgroundRecorder stopped = recorder;
+        recorder = null;
+        if (stopped != null)
+            stopped.stop();
+        return stopped;
+    }
+
     public void stop() throws FrameGrabber.Exception {
         // Return immediately if acquisition has already
         // stopped, e.g., on multiple calls to stop().
         if (!active) return;
         active = false;
+        connectionState = ConnectionState.STOPPED;
+        synchronized (reconnectSignal) {
+            reconnectSignal.notifyAll();
+        }
 
-        // Make sure that the lock is released. Note that in MATLAB this will always happen in the
-        // same thread as the lock acquisition, so there can't be user-race conditions here
-        tryReleaseImageLock();
-
-        // Close shared memory
-        memoryAccessLock.lock();
+        // Release any user locks and wait for the acquisition thread to finish writing. Note that
+        // in MATLAB this will always happen in the same thread as the lock acquisition, so there
+        // can't be user-race conditions here
         try {
+            if (lazyFrames != null)
+                lazyFrames.close();
+            if (pipelineFrames != null)
+                pipelineFrames.close();
+            slotRing.close();
+            stopRecording();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Close shared memory. The history waits for the writer to finish copying from the slots.
+        // Resolution changes swap the mappings while holding the same lock.
+        synchronized (geometryLock) {
+            closeSilently(history);
             closeSilently(sharedMemory);
-        } finally {
-            memoryAccessLock.unlock();
         }
+        unregisterStatistics();
 
         // Close grabber
         synchronized (grabber) {
@@ -189,6 +749,8 @@ public class BackgroundFrameGrabber {
 
     private void runAcquisitionLoop() throws FrameGrabber.Exception, IOException, InterruptedException {
         checkState(active, "VideoInput must be active");
+        lastFrameNanos = System.nanoTime();
+        reconnectBackoffMs = initialBackoffMs;
 
         while (active) {
 
@@ -196,54 +758,301 @@ public class BackgroundFrameGrabber {
             Frame frame = null;
             long frameNumber = 0;
             double timestamp = 0;
-            synchronized (grabber) {
-                frame = grabber.grabFrame();
-                frameNumber = grabber.getFrameNumber();
-                timestamp = grabber.getTimestamp() * 1E-6; // [us] to [s]
+            long grabStart = System.nanoTime();
+            try {
+                synchronized (grabber) {
+                    frame = grabber.grabFrame();
+                    frameNumber = grabber.getFrameNumber();
+                    timestamp = grabber.getTimestamp() * 1E-6; // [us] to [s]
+                }
+            } catch (FrameGrabber.Exception e) {
+                if (stallTimeoutMs <= 0)
+                    throw e;
+                reconnect(e);
+                continue;
             }
+            long grabEnd = System.nanoTime();
 
             // Retry grabbing frames after a timeout. Note that disconnecting IP cameras
-            // shows up as null frames, and not a FrameGrabber Exception. If a connection
-            // is legitimately disconnected, the MATLAB script should stop the acquisition.
+            // shows up as null frames, and not a FrameGrabber Exception, so the grabber
+            // only gets restarted once no frame has arrived for the stall timeout.
             if (frame == null) {
+                statistics.recordNullFrame();
+                if (stallTimeoutMs > 0 && grabEnd - lastFrameNanos > stallTimeoutMs * 1000000) {
+                    reconnect(null);
+                    continue;
+                }
                 int retryTimeoutMs = 100;
                 Thread.sleep(retryTimeoutMs);
                 continue;
             }
+            lastFrameNanos = grabEnd;
+            reconnectBackoffMs = initialBackoffMs;
+            connectionState = ConnectionState.CONNECTED;
+
+            statistics.recordGrab(grabEnd - grabStart);
 
-            // Acquire lock - note that we time out after a reasonable time in order to avoid deadlocks
-            // if users don't release locks properly (e.g. ctrl-c during copy).
-            boolean hasLock = memoryAccessLock.tryLock(1, SECONDS);
-            if (!hasLock)
+            // Copy the frame for the recording thread
+            BackgroundRecorder rec = recorder;
+            if (rec != null)
+                rec.offer(frame, frameNumber, timestamp);
+
+            // Defer the conversion until someone requests a frame
+            if (lazyFrames != null) {
+                if (FrameHandoff.isSupported(frame))
+                    lazyFrames.store(frame, frameNumber, timestamp);
+                else
+                    statistics.recordSkipped();
                 continue;
+            }
 
-            try {
-                // Make sure memory is active and update
-                if (!sharedMemory.isOpen())
-                    return;
+            // Hand the frame to the conversion thread and continue decoding
+            if (pipelineFrames != null) {
+                if (!FrameHandoff.isSupported(frame))
+                    statistics.recordSkipped();
+                else if (pipelineFrames.store(frame, frameNumber, timestamp))
+                    statistics.recordDropped();
+                continue;
+            }
 
-                // Write frame meta data to memory
-                ByteBuffer buffer = sharedMemory.clearBuffer();
-                buffer.putLong(frameNumber);
-                buffer.putDouble(timestamp);
+            publishFrame(frame, frameNumber, timestamp);
 
-                // Add image data in a MATLAB readable format
-                matlabImageConverter.writeFrameToBuffer(frame, buffer);
+        }
 
+    }
+
+    /**
+     * Restarts the grabber until it accepts the connection again. Failed attempts get retried
+     * with exponential backoff that only resets once a frame arrives, so sources that accept
+     * connections without sending frames don't get hammered either. The shared memory stays
+     * untouched, so readers only notice the missing frames.
+     */
+    private void reconnect(Exception cause) throws InterruptedException {
+        connectionState = ConnectionState.RECONNECTING;
+        if (cause != null)
+            connectionError = cause;
+        System.err.println("Lost connection to video source" + (cause != null ? " (" + cause.getMessage() + ")" : "") + ". Reconnecting.");
+
+        while (active) {
+            sleepWhileActive(reconnectBackoffMs);
+            reconnectBackoffMs = Math.min(2 * reconnectBackoffMs, maxBackoffMs);
+            if (!active)
+                break;
+
+            statistics.recordReconnect();
+            try {
+                synchronized (grabber) {
+                    if (!active)
+                        break; // don't restart a grabber that stop() already closed
+                    try {
+                        grabber.stop();
+                    } catch (FrameGrabber.Exception e) {
+                        // The session may already be broken
+                    }
+                    grabber.start();
+                }
+                lastFrameNanos = System.nanoTime(); // restart the stall timer
+                connectionState = ConnectionState.CONNECTED;
+                return;
+            } catch (FrameGrabber.Exception e) {
+                connectionError = e;
+            }
+        }
+    }
+
+    private void sleepWhileActive(long timeoutMs) throws InterruptedException {
+        synchronized (reconnectSignal) {
+            if (active)
+                reconnectSignal.wait(timeoutMs);
+        }
+    }
+
+    private void runConversionLoop() throws InterruptedException {
+        FrameHandoff frames = pipelineFrames;
+        while (active) {
+            int index = frames.acquireNext(grabberTimeoutMs);
+            if (index < 0)
+                continue;
+            try {
+                publishFrame(frames.getFrame(index), frames.getFrameNumber(index), frames.getTimestamp(index));
             } finally {
-                memoryAccessLock.unlock();
+                frames.release();
             }
+        }
+    }
+
+    /**
+     * Converts a frame into a free slot and makes it available to readers. Gets called by the
+     * acquisition thread, by the conversion thread in case of pipelined conversion, or by the
+     * reader in case of lazy conversion. There is only ever one writer at a time.
+     */
+    private void publishFrame(Frame frame, long frameNumber, double timestamp) throws InterruptedException {
+        // Adapt to streams that change their resolution
+        if (frame.image != null && (frame.imageWidth != imageWidth || frame.imageHeight != imageHeight))
+            changeGeometry(frame.imageWidth, frame.imageHeight);
+
+        // Acquire a free slot. This only waits if there are fewer than three slots and a user is still reading. Note
+        // that we time out after a reasonable time in order to avoid deadlocks if users don't release locks properly
+        // (e.g. ctrl-c during copy). Blocking queues keep waiting for the reader to drain the queue, which also
+        // releases stale locks.
+        long lockStart = System.nanoTime();
+        int slot = slotRing.acquireWriteSlot(1000);
+        while (slot < 0 && active && slotRing.getPolicy() == DeliveryPolicy.QUEUE_BLOCK) {
+            slot = slotRing.acquireWriteSlot(1000);
+        }
+        long lockEnd = System.nanoTime();
+        statistics.recordLockWait(lockEnd - lockStart);
+        if (slot < 0) {
+            if (active) statistics.recordDropped();
+            return;
+        }
+
+        // Mark the slot as being written for lock-free readers
+        long sequence = 2 * (slotRing.getPublishCount() + 1);
+        ByteBuffer header = sharedMemory.clearHeaderBuffer();
+        header.putLong(SEQUENCE_OFFSET + slot * 8, sequence - 1);
+        Resources.storeFence();
 
-            // Notify listeners that the data has updated
-            hasUpdated = true;
-            synchronized (arrivalNotification) {
-                arrivalNotification.notifyAll();
+        boolean converted;
+        Region roi = region;
+        try {
+            // Write frame meta data to memory
+            ByteBuffer buffer = sharedMemory.clearSlotBuffer(slot);
+            buffer.putLong(frameNumber);
+            buffer.putDouble(timestamp);
+
+            // Add image data in a MATLAB readable format
+            if (roi == null) {
+                buffer.putInt(0).putInt(0).putInt(imageWidth).putInt(imageHeight);
+                converted = matlabImageConverter.writeFrameToBuffer(frame, buffer);
+            } else if (frame.imageWidth == imageWidth && frame.imageHeight == imageHeight && frame.image != null) {
+                buffer.putInt(roi.x).putInt(roi.y).putInt(roi.width).putInt(roi.height);
+                Frame cropped = frameCropper.crop(frame, roi.x, roi.y, roi.width, roi.height);
+                converted = roi.converter.writeFrameToBuffer(cropped, buffer);
+            } else {
+                System.err.println("Unexpected image dimensions. Skipping frame.");
+                converted = false;
             }
+            statistics.recordConversion(System.nanoTime() - lockEnd);
+
+        } catch (RuntimeException e) {
+            slotRing.abortWrite();
+            throw e;
+        }
+
+        // Don't publish frames that could not be converted. The slot keeps its odd sequence
+        // number, so lock-free readers won't accept whatever data is left in it.
+        if (!converted) {
+            statistics.recordSkipped();
+            slotRing.abortWrite();
+            return;
+        }
+
+        // Mark the data as stable and point lock-free readers to it
+        Resources.storeFence();
+        header.putLong(SEQUENCE_OFFSET + slot * 8, sequence);
+        header.putLong(LATEST_SLOT_OFFSET, slot);
+        slotFrameNumbers[slot] = frameNumber;
+
+        // Notify listeners that the data has updated
+        statistics.recordPublished(slot);
+        if (slotRing.publish())
+            statistics.recordDropped();
 
+        // Copy full frames into the history. The slot only gets written by this thread, so
+        // its content stays valid even though readers may already be copying it.
+        FrameHistory frames = history;
+        if (frames != null && roi == null) {
+            ByteBuffer pixels = historyViews.get(sharedMemory.clearSlotBuffer(slot));
+            pixels.limit(HEADER_BYTES + frameBytes).position(HEADER_BYTES);
+            frames.store(pixels, frameNumber, timestamp);
         }
 
     }
 
+    private static class Region {
+
+        Region(int x, int y, int width, int height, MatlabImageConverter converter) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.converter = converter;
+        }
+
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+        final MatlabImageConverter converter;
+
+    }
+
+    /**
+     * Adapts the converters and the shared memory to new frame dimensions, e.g., after an IP
+     * camera switched profiles. Frames that still fit into the existing slots get written in
+     * place. Larger frames get a new backing file, and the old header points readers to the new
+     * generation. Unread frames with the old dimensions get discarded. Gets called by the writer.
+     * <p>
+     * The writer doesn't hold a slot here, so stop() can't wait for it via the ring. Instead,
+     * both sides swap or close the mappings while holding the geometry lock.
+     */
+    private void changeGeometry(int width, int height) throws InterruptedException {
+        int newFrameBytes = width * height * outputChannels * bytesPerSample;
+        MatlabImageConverter converter = createConverter(width, height, parallelConversion);
+        SharedMemory previous = sharedMemory;
+        SharedMemory memory = previous;
+        if (HEADER_BYTES + newFrameBytes > previous.getSlotBytes())
+            memory = SharedMemory.allocate(previous.getHeaderBytes(), HEADER_BYTES + newFrameBytes, previous.getNumSlots(), backingStore);
+
+        // The history holds full frames, so it needs to be reallocated as well
+        FrameHistory previousHistory = history;
+        FrameHistory newHistory = previousHistory;
+        if (previousHistory != null)
+            newHistory = new FrameHistory(previousHistory.getLength(), newFrameBytes, backingStore);
+
+        // Make sure that nobody copies data while the layout changes
+        int discarded = slotRing.discardUnread(1000);
+        for (int i = 0; i < discarded; i++) {
+            statistics.recordDropped();
+        }
+
+        synchronized (geometryLock) {
+            // stop() may already have unmapped the previous memory. Don't leak the new files.
+            if (!active) {
+                if (memory != previous)
+                    closeSilently(memory);
+                if (newHistory != previousHistory)
+                    closeSilently(newHistory);
+                return;
+            }
+
+            imageWidth = width;
+            imageHeight = height;
+            frameBytes = newFrameBytes;
+            matlabImageConverter = converter;
+            Region roi = region;
+            if (roi != null && (roi.x + roi.width > width || roi.y + roi.height > height))
+                region = null;
+
+            // Readers check the generation before they remap, so everything else needs to be in place
+            generation++;
+            writeFormatHeader(memory);
+            if (memory != previous) {
+                sharedMemory = memory;
+                ByteBuffer header = previous.clearHeaderBuffer();
+                header.putLong(LATEST_SLOT_OFFSET, -1);
+                header.putLong(formatOffset + GENERATION_OFFSET, generation);
+                closeSilently(previous);
+            }
+            if (newHistory != previousHistory) {
+                history = newHistory;
+                closeSilently(previousHistory);
+            }
+        }
+        System.err.println("Image dimensions changed to " + width + "x" + height);
+    }
+
     private final Runnable acquisitionLoop = new Runnable() {
         @Override
         public void run() {
@@ -255,20 +1064,69 @@ public class BackgroundFrameGrabber {
         }
     };
 
+    private final Runnable conversionLoop = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                runConversionLoop();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
     // Setup
     final FrameGrabber grabber;
-    final MatlabImageConverter matlabImageConverter;
-    final SharedMemory sharedMemory;
-    final Lock memoryAccessLock = new ReentrantLock();
+    final MatlabImageConverterProvider outputFormat;
+    volatile MatlabImageConverter matlabImageConverter;
+    private final FrameCropper frameCropper = new FrameCropper();
+    volatile SharedMemory sharedMemory;
+    private final BackingStore backingStore;
+    final SlotRing slotRing;
+    private final long[] slotFrameNumbers; // guarded by the slot ring
+    final AcquisitionStatistics statistics;
     private final long grabberTimeoutMs;
-    private final int HEADER_BYTES = 16; // 8 [frame#] + 8 [timestamp]
+    private final int HEADER_BYTES = 32; // 8 [frame#] + 8 [timestamp] + 4x4 [roi x, y, width, height]
+    static final int LATEST_SLOT_OFFSET = 0;
+    static final int SEQUENCE_OFFSET = 8;
+    private static final int FORMAT_BYTES = 32; // 8 [class] + 4 [channels] + 4 [bytes per sample] + 8 [generation] + 2x4 [width, height]
+    private static final int GENERATION_OFFSET = 16; // within the format
+    private final int formatOffset;
     private final int channels;
+    private final int outputChannels;
+    private final int bytesPerSample;
+    private final Object geometryLock = new Object();
+    private volatile int imageWidth;
+    private volatile int imageHeight;
+    private volatile int frameBytes;
+    private volatile long generation = 0;
+    private static final long DEFAULT_STALL_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_INITIAL_BACKOFF_MS = 100;
+    private static final long DEFAULT_MAX_BACKOFF_MS = 5000;
+    private final Buffer sourceTemplate;
+    final String threadName = "VideoInput-" + threadCounter.getAndIncrement();
+    private static final int DEFAULT_NUM_SLOTS = 3;
+    static final long FUSED_BGR_MIN_PIXELS = 3840 * 2160;
 
     // State
-    final Object arrivalNotification = new Object();
-    volatile boolean hasUpdated = false;
     volatile boolean active = true;
-    volatile boolean userHasLock = false;
+    private volatile boolean started = false;
+    volatile FrameHandoff lazyFrames = null;
+    volatile FrameHandoff pipelineFrames = null;
+    private volatile boolean parallelConversion = false;
+    private volatile Region region = null;
+    private volatile BackgroundRecorder recorder = null;
+    private volatile ConnectionState connectionState = ConnectionState.CONNECTED;
+    private volatile Throwable connectionError = null;
+    private volatile long lastFrameNanos = System.nanoTime();
+    private volatile long stallTimeoutMs = DEFAULT_STALL_TIMEOUT_MS;
+    private volatile long initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+    private volatile long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+    private long reconnectBackoffMs = DEFAULT_INITIAL_BACKOFF_MS; // only used by the acquisition thread
+    private final Object reconnectSignal = new Object();
+    private volatile FrameHistory history = null;
+    private final BufferViews historyViews = new BufferViews();
+    private ObjectName statisticsName = null;
 
     private static final AtomicInteger threadCounter = new AtomicInteger(0);
 
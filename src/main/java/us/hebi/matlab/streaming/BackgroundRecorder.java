@@ -0,0 +1,183 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Records the frames of a {@link BackgroundFrameGrabber} on a separate thread. The acquisition
+ * thread only copies each frame into a bounded queue of preallocated buffers and never waits
+ * for the recorder, so a slow disk or encoder can't affect the live latency. Frames that
+ * arrive while the queue is full get dropped and counted.
+ * <p>
+ * Implementations only need to write frames to their destination. All methods that write
+ * get called by the recording thread.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public abstract class BackgroundRecorder {
+
+    /**
+     * Gets called with the first frame before it gets written
+     */
+    protected abstract void open(Frame frame) throws Exception;
+
+    protected abstract void write(Frame frame, long frameNumber, double timestamp) throws Exception;
+
+    /**
+     * Gets called after the last frame has been written. Only gets called if open has succeeded.
+     */
+    protected abstract void close() throws Exception;
+
+    /**
+     * @return number of frames that have been written
+     */
+    public long getRecordedFrames() {
+        return recordedFrames.get();
+    }
+
+    /**
+     * @return number of frames that got lost because the queue was full, because they were
+     * not supported, or because writing failed
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return the exception that stopped the recording, or null if there was none
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isRecording() {
+        return thread != null && thread.isAlive();
+    }
+
+    /**
+     * Starts the recording thread. Gets called by the grabber that the recorder gets attached to.
+     *
+     * @param template pixel buffer of the expected frames, or null if frames are not supported
+     */
+    void start(Buffer template, String name) {
+        checkState(thread == null, "Recorder can only be started once");
+        if (template instanceof ByteBuffer || template instanceof ShortBuffer)
+            frames.preallocate(template);
+        thread = new Thread(recordingLoop);
+        thread.setDaemon(true);
+        thread.setName(name);
+        thread.start();
+    }
+
+    /**
+     * Copies the frame into the queue. Gets called by the acquisition thread and never waits
+     * for the recording thread.
+     */
+    void offer(Frame frame, long frameNumber, double timestamp) throws InterruptedException {
+        // Frames only get queued before the stop request, so the last pass of the recording loop sees all of them
+        synchronized (offerLock) {
+            if (stopping || error != null || !FrameHandoff.isSupported(frame)) {
+                droppedFrames.incrementAndGet();
+            } else if (frames.store(frame, frameNumber, timestamp)) {
+                droppedFrames.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Writes all queued frames and closes the destination. Frames that get offered
+     * afterwards get dropped.
+     */
+    public void stop() throws InterruptedException {
+        if (thread == null)
+            return;
+        synchronized (offerLock) {
+            stopping = true;
+        }
+        thread.join();
+        frames.close();
+    }
+
+    private void runRecordingLoop() throws InterruptedException {
+        boolean opened = false;
+        try {
+            while (true) {
+                // Keep going until the queue is empty after a stop request
+                boolean lastPass = stopping;
+                int index = frames.acquireNext(POLL_TIMEOUT_MS);
+                if (index < 0) {
+                    if (lastPass)
+                        break;
+                    continue;
+                }
+
+                try {
+                    if (error != null) {
+                        droppedFrames.incrementAndGet();
+                        continue;
+                    }
+                    Frame frame = frames.getFrame(index);
+                    if (!opened) {
+                        open(frame);
+                        opened = true;
+                    }
+                    write(frame, frames.getFrameNumber(index), frames.getTimestamp(index));
+                    recordedFrames.incrementAndGet();
+                } catch (Exception e) {
+                    System.err.println("Recording failed: " + e.getMessage());
+                    error = e;
+                    droppedFrames.incrementAndGet();
+                } finally {
+                    frames.release();
+                }
+            }
+        } finally {
+            if (opened) {
+                try {
+                    close();
+                } catch (Exception e) {
+                    System.err.println("Failed to close recording: " + e.getMessage());
+                    if (error == null)
+                        error = e;
+                }
+            }
+        }
+    }
+
+    private final Runnable recordingLoop = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                runRecordingLoop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    /**
+     * @param queueCapacity max number of frames that may wait to be written
+     */
+    protected BackgroundRecorder(int queueCapacity) {
+        checkArgument(queueCapacity > 0, "Queue capacity must be greater than zero");
+        // One additional buffer holds the frame that is currently being written
+        frames = new FrameHandoff(queueCapacity + 1, DeliveryPolicy.QUEUE_DROP_NEWEST);
+    }
+
+    private final FrameHandoff frames;
+    private final AtomicLong recordedFrames = new AtomicLong(0);
+    private final AtomicLong droppedFrames = new AtomicLong(0);
+    private volatile Throwable error = null;
+    private volatile boolean stopping = false;
+    private final Object offerLock = new Object();
+    private Thread thread = null;
+    private static final long POLL_TIMEOUT_MS = 100;
+
+}
@@ -0,0 +1,232 @@
+package us.hebi.matlab.streaming;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Selects the file system that backs shared memory. Memory mapped files in the working
+ * directory get written back to disk by the kernel, which can compete with other I/O if the
+ * directory is on a slow or networked drive. Files on tmpfs (/dev/shm) only live in memory,
+ * and files on hugetlbfs additionally use huge pages, which reduces TLB misses for large frames.
+ * <p>
+ * Stores that are not available on the current system fall back to tmpfs, and then to the
+ * working directory, so the same settings work on all platforms. Optionally, all pages can get
+ * written once after mapping, so that the first frames don't pay for page faults.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public final class BackingStore {
+
+    /**
+     * @return store of the shared memory files that HebiCam has always used
+     */
+    public static BackingStore workingDirectory() {
+        return new BackingStore(Type.WORKING_DIRECTORY, null, false);
+    }
+
+    /**
+     * @return RAM backed store in /dev/shm. Falls back to the working directory
+     */
+    public static BackingStore tmpfs() {
+        return new BackingStore(Type.TMPFS, null, false);
+    }
+
+    /**
+     * @return the first mounted hugetlbfs, e.g., /dev/hugepages. Requires huge pages to be reserved, e.g.,
+     * via /proc/sys/vm/nr_hugepages, and write access to the mount. Falls back to tmpfs.
+     */
+    public static BackingStore hugePages() {
+        return new BackingStore(Type.HUGEPAGES, null, false);
+    }
+
+    /**
+     * @return store in a user specified directory, e.g., on a dedicated RAM disk. Falls back to tmpfs.
+     */
+    public static BackingStore directory(File directory) {
+        return new BackingStore(Type.DIRECTORY, checkNotNull(directory, "Directory can't be empty"), false);
+    }
+
+    /**
+     * @return tmpfs, which falls back to the working directory on systems without /dev/shm
+     */
+    public static BackingStore getDefault() {
+        return tmpfs();
+    }
+
+    /**
+     * @param name "cwd", "tmpfs", "hugepages", or the path of a directory
+     */
+    public static BackingStore forName(String name) {
+        checkNotNull(name, "Name can't be empty");
+        String key = name.toLowerCase(Locale.US);
+        if (key.equals(Type.WORKING_DIRECTORY.name))
+            return workingDirectory();
+        if (key.equals(Type.TMPFS.name))
+            return tmpfs();
+        if (key.equals(Type.HUGEPAGES.name))
+            return hugePages();
+        return directory(new File(name));
+    }
+
+    /**
+     * @param enabled true to write to every page right after mapping. Moves the cost of page
+     *                faults from the first frames to the allocation.
+     */
+    public BackingStore withPreTouch(boolean enabled) {
+        return new BackingStore(type, directory, enabled);
+    }
+
+    public boolean isPreTouch() {
+        return preTouch;
+    }
+
+    public String getName() {
+        return type == Type.DIRECTORY ? directory.getPath() : type.name;
+    }
+
+    /**
+     * @return directory for new files, or null if the store is not available on this system
+     */
+    File getDirectory() {
+        switch (type) {
+            case WORKING_DIRECTORY:
+                return new File("").getAbsoluteFile();
+            case TMPFS:
+                return isWritableDirectory(TMPFS_DIRECTORY) ? TMPFS_DIRECTORY : null;
+            case HUGEPAGES:
+                File mount = findMount(HUGETLBFS);
+                return mount != null && isWritableDirectory(mount) && getFreeHugePages() > 0 ? mount : null;
+            case DIRECTORY:
+                return isWritableDirectory(directory) ? directory : null;
+        }
+        throw new IllegalStateException("Unknown store: " + type);
+    }
+
+    /**
+     * @return store to try if this store is not available, or null for the working directory
+     */
+    BackingStore getFallback() {
+        switch (type) {
+            case HUGEPAGES:
+            case DIRECTORY:
+                return tmpfs().withPreTouch(preTouch);
+            case TMPFS:
+                return workingDirectory().withPreTouch(preTouch);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return granularity of the mapped memory in bytes. Mapped files get rounded up to a multiple
+     * of this size, because hugetlbfs can't map partial pages.
+     */
+    int getPageSize() {
+        return type == Type.HUGEPAGES ? getHugePageSize() : DEFAULT_PAGE_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + (preTouch ? " (pre-touched)" : "");
+    }
+
+    /**
+     * @return mount point of the first file system of the given type in /proc/mounts, or null
+     */
+    static File findMount(String fileSystemType) {
+        for (String line : readLines(PROC_MOUNTS)) {
+            // e.g. "hugetlbfs /dev/hugepages hugetlbfs rw,relatime,pagesize=2M 0 0"
+            String[] fields = line.split(" ");
+            if (fields.length > 2 && fields[2].equals(fileSystemType))
+                return new File(fields[1].replace("\\040", " "));
+        }
+        return null;
+    }
+
+    private static int getHugePageSize() {
+        long kiloBytes = readMemInfo("Hugepagesize:");
+        return kiloBytes > 0 ? (int) (kiloBytes * 1024) : DEFAULT_HUGE_PAGE_SIZE;
+    }
+
+    private static long getFreeHugePages() {
+        return readMemInfo("HugePages_Free:");
+    }
+
+    /**
+     * @return numeric value of a /proc/meminfo entry, or -1 if it is not available
+     */
+    private static long readMemInfo(String key) {
+        for (String line : readLines(PROC_MEMINFO)) {
+            // e.g. "Hugepagesize:       2048 kB"
+            if (line.startsWith(key)) {
+                String[] fields = line.substring(key.length()).trim().split("\\s+");
+                try {
+                    return Long.parseLong(fields[0]);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String[] readLines(File file) {
+        if (!file.canRead())
+            return new String[0];
+        StringBuilder text = new StringBuilder();
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null)
+                    text.append(line).append('\n');
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            return new String[0];
+        }
+        return text.toString().split("\n");
+    }
+
+    private static boolean isWritableDirectory(File directory) {
+        return directory.isDirectory() && directory.canWrite();
+    }
+
+    private BackingStore(Type type, File directory, boolean preTouch) {
+        this.type = type;
+        this.directory = directory;
+        this.preTouch = preTouch;
+    }
+
+    private enum Type {
+        WORKING_DIRECTORY("cwd"),
+        TMPFS("tmpfs"),
+        HUGEPAGES("hugepages"),
+        DIRECTORY("directory");
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        final String name;
+    }
+
+    private final Type type;
+    private final File directory;
+    private final boolean preTouch;
+
+    private static final File TMPFS_DIRECTORY = new File("/dev/shm");
+    private static final File PROC_MOUNTS = new File("/proc/mounts");
+    private static final File PROC_MEMINFO = new File("/proc/meminfo");
+    private static final String HUGETLBFS = "hugetlbfs";
+    private static final int DEFAULT_PAGE_SIZE = 4096;
+    private static final int DEFAULT_HUGE_PAGE_SIZE = 2 * 1024 * 1024;
+
+}
@@ -0,0 +1,74 @@
+package us.hebi.matlab.streaming;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Caches duplicates of recently used buffers, e.g., the frame buffers of a grabber or the
+ * slots of a shared memory region. This lets code modify positions without changing the
+ * original buffer, and without allocating a new view for every frame. The cache grows to
+ * hold every slot, so it only replaces entries once there are more than a few hundred buffers.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class BufferViews {
+
+    /**
+     * @return a view with independent position and limit that shares the content of the buffer
+     */
+    ByteBuffer get(ByteBuffer buffer) {
+        int i = indexOf(buffer);
+        if (i < 0)
+            i = add(buffer, buffer.duplicate().order(buffer.order()));
+        return (ByteBuffer) views[i];
+    }
+
+    /**
+     * @return a view with independent position and limit that shares the content of the buffer
+     */
+    ShortBuffer get(ShortBuffer buffer) {
+        int i = indexOf(buffer);
+        if (i < 0)
+            i = add(buffer, buffer.duplicate());
+        return (ShortBuffer) views[i];
+    }
+
+    private int indexOf(Buffer buffer) {
+        for (int i = 0; i < size; i++) {
+            if (buffers[i] == buffer)
+                return i;
+        }
+        return -1;
+    }
+
+    private int add(Buffer buffer, Buffer view) {
+        if (size == buffers.length && size < MAX_ENTRIES) {
+            int capacity = Math.min(2 * size, MAX_ENTRIES);
+            buffers = Arrays.copyOf(buffers, capacity);
+            views = Arrays.copyOf(views, capacity);
+        }
+
+        // Replace entries in round robin order once the cache is full
+        int i;
+        if (size < buffers.length) {
+            i = size++;
+        } else {
+            i = next;
+            next = (next + 1) % buffers.length;
+        }
+        buffers[i] = buffer;
+        views[i] = view;
+        return i;
+    }
+
+    private Buffer[] buffers = new Buffer[8];
+    private Buffer[] views = new Buffer[8];
+    private int size = 0;
+    private int next = 0;
+
+    private static final int MAX_ENTRIES = 256;
+
+}
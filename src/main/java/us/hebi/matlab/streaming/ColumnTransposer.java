@@ -0,0 +1,159 @@
+package us.hebi.matlab.streaming;
+
+import java.nio.ByteBuffer;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts a range of columns of an interleaved 8 bit image (grayscale or BGR) to MATLAB's
+ * planar column-major format in a single pass. It copies a block of rows into a reusable
+ * array, gathers the columns of the block while splitting channels, and writes each column
+ * run straight into its position in the destination planes. The block is small enough to
+ * stay in cache, so every pixel gets touched only once in main memory.
+ * <p>
+ * Instances are not thread safe, but separate instances may convert different columns
+ * of the same frame in parallel as long as each one uses its own buffer views.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class ColumnTransposer {
+
+    /**
+     * @param source      view of the source pixels. The position gets modified.
+     * @param stride      number of bytes between the start of two rows in the source
+     * @param destination view of the destination. The position gets modified.
+     * @param planeOffset position of the first plane in the destination
+     * @param col         first column to convert
+     * @param cols        number of columns to convert
+     */
+    void transpose(ByteBuffer source, int stride, ByteBuffer destination, int planeOffset, int col, int cols) {
+        checkArgument(cols <= maxColumns, "Too many columns");
+        for (int row = 0; row < height; row += BLOCK_ROWS) {
+            int rows = Math.min(BLOCK_ROWS, height - row);
+            readRows(source, stride, row, rows, col, cols);
+            if (channels == 3) {
+                writeColorColumns(destination, planeOffset, row, rows, col, cols);
+            } else {
+                writeGrayColumns(destination, planeOffset, row, rows, col, cols);
+            }
+        }
+    }
+
+    /**
+     * Copies the columns [col, col + cols) of consecutive source rows into the block array
+     */
+    private void readRows(ByteBuffer source, int stride, int row, int rows, int col, int cols) {
+        int rowBytes = cols * channels;
+        if (stride == rowBytes) {
+            source.limit(source.capacity()).position(row * stride);
+            source.get(block, 0, rows * rowBytes);
+        } else {
+            for (int i = 0; i < rows; i++) {
+                source.limit(source.capacity()).position((row + i) * stride + col * channels);
+                source.get(block, i * rowBytes, rowBytes);
+            }
+        }
+    }
+
+    private void writeColorColumns(ByteBuffer destination, int planeOffset, int row, int rows, int col, int cols) {
+        final byte[] block = this.block;
+        final byte[] r = this.r;
+        final byte[] g = this.g;
+        final byte[] b = this.b;
+        final int rowBytes = 3 * cols;
+        int x = 0;
+
+        // Gather four columns at a time so that each pass over the block's
+        // cache lines reads 12 consecutive bytes instead of only 3
+        for (; x + 4 <= cols; x += 4) {
+            for (int y = 0, i = 3 * x; y < rows; y++, i += rowBytes) {
+                b[y] = block[i];
+                g[y] = block[i + 1];
+                r[y] = block[i + 2];
+                b[y + BLOCK_ROWS] = block[i + 3];
+                g[y + BLOCK_ROWS] = block[i + 4];
+                r[y + BLOCK_ROWS] = block[i + 5];
+                b[y + 2 * BLOCK_ROWS] = block[i + 6];
+                g[y + 2 * BLOCK_ROWS] = block[i + 7];
+                r[y + 2 * BLOCK_ROWS] = block[i + 8];
+                b[y + 3 * BLOCK_ROWS] = block[i + 9];
+                g[y + 3 * BLOCK_ROWS] = block[i + 10];
+                r[y + 3 * BLOCK_ROWS] = block[i + 11];
+            }
+            for (int k = 0; k < 4; k++) {
+                int offset = planeOffset + (col + x + k) * height + row;
+                putColumn(destination, offset, r, k * BLOCK_ROWS, rows);
+                putColumn(destination, offset + planeBytes, g, k * BLOCK_ROWS, rows);
+                putColumn(destination, offset + 2 * planeBytes, b, k * BLOCK_ROWS, rows);
+            }
+        }
+
+        // Remaining columns
+        for (; x < cols; x++) {
+            for (int y = 0, i = 3 * x; y < rows; y++, i += rowBytes) {
+                b[y] = block[i];
+                g[y] = block[i + 1];
+                r[y] = block[i + 2];
+            }
+            int offset = planeOffset + (col + x) * height + row;
+            putColumn(destination, offset, r, 0, rows);
+            putColumn(destination, offset + planeBytes, g, 0, rows);
+            putColumn(destination, offset + 2 * planeBytes, b, 0, rows);
+        }
+    }
+
+    private void writeGrayColumns(ByteBuffer destination, int planeOffset, int row, int rows, int col, int cols) {
+        final byte[] block = this.block;
+        final byte[] gray = this.r;
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0, i = x; y < rows; y++, i += cols) {
+                gray[y] = block[i];
+            }
+            putColumn(destination, planeOffset + (col + x) * height + row, gray, 0, rows);
+        }
+    }
+
+    /**
+     * Columns are contiguous in MATLAB's format
+     */
+    private static void putColumn(ByteBuffer destination, int offset, byte[] column, int index, int rows) {
+        destination.limit(destination.capacity()).position(offset);
+        destination.put(column, index, rows);
+    }
+
+    /**
+     * @param maxColumns max number of columns that get converted in a single call
+     */
+    ColumnTransposer(int width, int height, int channels, int maxColumns) {
+        checkArgument(width > 0 && height > 0, "Image dimensions must be positive");
+        checkArgument(channels == 1 || channels == 3, "Unsupported number of channels: " + channels);
+        checkArgument(maxColumns > 0 && maxColumns <= width, "Columns must be within the image");
+        this.height = height;
+        this.channels = channels;
+        this.maxColumns = maxColumns;
+        this.planeBytes = width * height;
+        this.block = new byte[BLOCK_ROWS * maxColumns * channels];
+        this.r = new byte[4 * BLOCK_ROWS];
+        this.g = new byte[4 * BLOCK_ROWS];
+        this.b = new byte[4 * BLOCK_ROWS];
+    }
+
+    /**
+     * Number of rows that get processed at a time. The columns of a few neighboring pixels
+     * span BLOCK_ROWS cache lines, which need to stay in the L1 cache for the duration of
+     * the inner loop. Larger blocks need fewer but longer copies into the destination.
+     */
+    static final int BLOCK_ROWS = 64;
+
+    final int height;
+    final int channels;
+    final int maxColumns;
+    final int planeBytes;
+
+    final byte[] block;
+    final byte[] r;
+    final byte[] g;
+    final byte[] b;
+
+}
@@ -0,0 +1,32 @@
+package us.hebi.matlab.streaming;
+
+/**
+ * Health of the connection between a {@link BackgroundFrameGrabber} and its source
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public enum ConnectionState {
+
+    /**
+     * The source delivers frames
+     */
+    CONNECTED,
+
+    /**
+     * The source has not delivered a frame within the stall timeout. The grabber
+     * gets restarted once it stops waiting for the source.
+     */
+    STALLED,
+
+    /**
+     * The grabber is being restarted. Failed attempts get retried with exponential backoff.
+     */
+    RECONNECTING,
+
+    /**
+     * The acquisition has been stopped
+     */
+    STOPPED
+
+}
@@ -0,0 +1,41 @@
+package us.hebi.matlab.streaming;
+
+/**
+ * Determines which frames readers get to see and what happens once the
+ * reader falls behind the acquisition.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public enum DeliveryPolicy {
+
+    /**
+     * Readers always get the most recent frame. Older frames get overwritten, so
+     * the acquisition never waits for readers. Lowest latency.
+     */
+    LATEST,
+
+    /**
+     * Frames get queued and delivered in order. The acquisition waits for a free
+     * slot once the queue is full, so no frame gets lost between grabber and reader.
+     * Note that sources that don't buffer may still skip frames while waiting.
+     */
+    QUEUE_BLOCK,
+
+    /**
+     * Frames get queued and delivered in order. Once the queue is full, the oldest
+     * unread frame gets replaced by the new one.
+     */
+    QUEUE_DROP_OLDEST,
+
+    /**
+     * Frames get queued and delivered in order. Once the queue is full, new frames
+     * get discarded until the reader catches up.
+     */
+    QUEUE_DROP_NEWEST;
+
+    boolean isQueued() {
+        return this != LATEST;
+    }
+
+}
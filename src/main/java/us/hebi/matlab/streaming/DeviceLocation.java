@@ -2,7 +2,11 @@ package us.hebi.matlab.streaming;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.*;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static us.hebi.matlab.streaming.Preconditions.*;
 
@@ -36,6 +40,22 @@ public class DeviceLocation {
         return uri instanceof Number;
     }
 
+    /**
+     * @return one based number of a local device
+     */
+    public int getDeviceNumber() {
+        checkState(isNumber(), "Device location is not a number");
+        return ((Number) uri).intValue();
+    }
+
+    /**
+     * @return url, file, or device path
+     */
+    public String getPath() {
+        checkState(uri instanceof String, "Device location is not a path");
+        return (String) uri;
+    }
+
     private void checkNumber(Number number) {
         double device = ((Number) number).doubleValue();
         checkArgument(device == Math.rint(device), "Device number must be an integer, not a float.");
@@ -68,8 +88,40 @@ public class DeviceLocation {
     }
 
     /**
-     * Check whether the address is reachable (ICMP ping) to avoid an infinite wait
-     * (bug?) when connecting to IP cameras that are not on the network.
+     * @return TCP port of the stream, i.e., the explicit port of the url or the default port of
+     * the scheme, e.g., 554 for rtsp. Returns -1 for datagram schemes (udp, rtp) and unknown schemes.
+     */
+    public int getPort() {
+        try {
+            if (!isUrl())
+                return -1;
+            URI uri = new URI((String) this.uri);
+            String scheme = uri.getScheme().toLowerCase(Locale.US);
+            if (scheme.equals("udp") || scheme.equals("rtp"))
+                return -1;
+            if (uri.getPort() >= 0)
+                return uri.getPort();
+            if (scheme.equals("rtsp"))
+                return 554;
+            if (scheme.equals("rtsps"))
+                return 322;
+            if (scheme.equals("http"))
+                return 80;
+            if (scheme.equals("https"))
+                return 443;
+            if (scheme.equals("rtmp"))
+                return 1935;
+            return -1;
+        } catch (URISyntaxException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Check whether the device is reachable to avoid an infinite wait (bug?) when
+     * connecting to IP cameras that are not on the network. Opens a TCP connection
+     * to the port of the stream if it is known (see {@link #probeReachability(int)}),
+     * and falls back to an ICMP ping otherwise.
      *
      * @param millis timeout in milliseconds
      * @return true if host is reachable within timeout
@@ -78,14 +130,148 @@ public class DeviceLocation {
         if (!isUrl()) // makes sure that host exists
             return false;
 
+        if (getPort() < 0) {
+            try {
+                InetAddress host = InetAddress.getByName(new URI((String) uri).getHost());
+                return host.isReachable(millis);
+            } catch (URISyntaxException e) {
+                return false;
+            }
+        }
+
         try {
-            InetAddress host = InetAddress.getByName(new URI((String) uri).getHost());
-            return host.isReachable(millis);
-        } catch (URISyntaxException e) {
+            return probeReachability(millis).get(millis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
             return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while probing " + uri);
+        }
+    }
+
+    /**
+     * Starts opening a TCP connection to the port of the stream in the background. Unlike
+     * ICMP pings, this also works on networks that filter pings, and it checks that the
+     * service is up rather than only the host. Probes of different locations run in parallel,
+     * so checking a rig of several cameras takes as long as the slowest camera.
+     * <p>
+     * Results get cached for a short time, and concurrent probes of the same host and port
+     * share a single connection attempt, so a location may be probed early to warm up the
+     * name lookup and the cache before the grabber gets created.
+     *
+     * @param millis connection timeout in milliseconds
+     * @return future that completes with true if the connection got accepted. Locations without
+     * a host, e.g., urls without an authority, complete with false right away.
+     */
+    public Future<Boolean> probeReachability(int millis) {
+        checkArgument(millis > 0, "Timeout must be positive");
+        String host = getHost();
+        if (host == null) {
+            FutureTask<Boolean> unreachable = new FutureTask<Boolean>(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, false);
+            unreachable.run();
+            return unreachable;
+        }
+        int port = getPort();
+        checkState(port >= 0, "Location has no known TCP port: " + uri);
+
+        String key = host.toLowerCase(Locale.US) + ":" + port;
+        while (true) {
+            Probe cached = probeCache.get(key);
+            if (cached != null && !cached.isExpired())
+                return cached.result;
+            Probe probe = new Probe(host, port, millis);
+            boolean added = cached == null
+                    ? probeCache.putIfAbsent(key, probe) == null
+                    : probeCache.replace(key, cached, probe);
+            if (added) {
+                ProbeExecutorHolder.EXECUTOR.execute(probe.result);
+                return probe.result;
+            }
+        }
+    }
+
+    /**
+     * @return host of the url, or null if there is none, e.g., for urls without an authority
+     */
+    private String getHost() {
+        try {
+            return uri instanceof String ? new URI((String) uri).getHost() : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Forgets all probe results, e.g., after a device got turned on
+     */
+    static void clearReachabilityCache() {
+        probeCache.clear();
+    }
+
+    private static class Probe implements Callable<Boolean> {
+
+        Probe(String host, int port, int millis) {
+            this.host = host;
+            this.port = port;
+            this.millis = millis;
+        }
+
+        @Override
+        public Boolean call() {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), millis);
+                return true;
+            } catch (IOException e) {
+                return false;
+            } finally {
+                completedNanos = System.nanoTime();
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+
+        boolean isExpired() {
+            return result.isDone() && System.nanoTime() - completedNanos > PROBE_CACHE_TTL_NANOS;
         }
+
+        final String host;
+        final int port;
+        final int millis;
+        final FutureTask<Boolean> result = new FutureTask<Boolean>(this);
+        volatile long completedNanos;
+
+    }
+
+    /**
+     * Lazily creates the pool on first use
+     */
+    private static class ProbeExecutorHolder {
+        private static final AtomicInteger threadCounter = new AtomicInteger(0);
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        thread.setName("ReachabilityProbe-" + threadCounter.getAndIncrement());
+                        return thread;
+                    }
+                });
     }
 
     private final Object uri;
 
+    private static final ConcurrentMap<String, Probe> probeCache = new ConcurrentHashMap<String, Probe>();
+    private static final long PROBE_CACHE_TTL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
 }
@@ -0,0 +1,62 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Encodes frames into a video file, e.g., mp4 or mkv. The container and codec get selected
+ * by the file extension. Frames get stamped with their acquisition timestamp relative to the
+ * first frame, so dropped frames don't change the speed of the playback.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class FFmpegRecorder extends BackgroundRecorder {
+
+    @Override
+    protected void open(Frame frame) throws Exception {
+        recorder = new FFmpegFrameRecorder(file, frame.imageWidth, frame.imageHeight);
+        recorder.setFrameRate(frameRate);
+        recorder.setVideoOption("preset", "ultrafast"); // keep up with the camera. Ignored by codecs other than h264.
+        recorder.start();
+    }
+
+    @Override
+    protected void write(Frame frame, long frameNumber, double timestamp) throws Exception {
+        if (Double.isNaN(firstTimestamp))
+            firstTimestamp = timestamp;
+        long timestampUs = Math.round((timestamp - firstTimestamp) * 1E6);
+        if (timestampUs > recorder.getTimestamp())
+            recorder.setTimestamp(timestampUs);
+        recorder.record(frame);
+    }
+
+    @Override
+    protected void close() throws Exception {
+        try {
+            recorder.stop();
+        } finally {
+            recorder.release();
+        }
+    }
+
+    /**
+     * @param file          output file, e.g., "recording.mp4"
+     * @param frameRate     nominal frame rate of the video
+     * @param queueCapacity max number of frames that may wait to be encoded
+     */
+    public FFmpegRecorder(String file, double frameRate, int queueCapacity) {
+        super(queueCapacity);
+        checkArgument(frameRate > 0, "Frame rate must be positive");
+        this.file = checkNotNull(file, "File can't be empty");
+        this.frameRate = frameRate;
+    }
+
+    private final String file;
+    private final double frameRate;
+    private FFmpegFrameRecorder recorder;
+    private double firstTimestamp = Double.NaN;
+
+}
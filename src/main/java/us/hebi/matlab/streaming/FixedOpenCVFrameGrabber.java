@@ -99,7 +99,11 @@ public class FixedOpenCVFrameGrabber extends FrameGrabber {
     private VideoCapture capture = null;
     private Mat returnMatrix = null;
     private final OpenCVFrameConverter converter = new OpenCVFrameConverter.ToMat();
+    private Frame returnFrame = null;
+    private Mat lastMatrix = null;
+    private int lastRows, lastCols, lastType;
     private final Mat mat = new Mat();
+    private static final long WARM_UP_TIMEOUT_MS = 10000;
 
     @Override
     public double getGamma() {
@@ -231,20 +235,26 @@ public class FixedOpenCVFrameGrabber extends FrameGrabber {
 
         Mat mat = new Mat();
 
+        // Before retrieve() starts returning something else then null
+        // QTKit sometimes requires some "warm-up" time for some reason...
+        // The first frame on Linux is sometimes null as well,
+        // so it's probably a good idea to run this for all platforms... ?
+        // Polls with an increasing delay, so that devices that are ready
+        // right away don't wait for a fixed sleep. Gives up after ~10 seconds.
+        boolean warm = capture.read(mat);
         try {
-            // Before retrieve() starts returning something else then null
-            // QTKit sometimes requires some "warm-up" time for some reason...
-            // The first frame on Linux is sometimes null as well,
-            // so it's probably a good idea to run this for all platforms... ?
-            int count = 0;
-            while (count++ < 100 && !capture.read(mat)) {
-                Thread.sleep(100);
+            long delayMs = 1;
+            long deadline = System.currentTimeMillis() + WARM_UP_TIMEOUT_MS;
+            while (!warm && System.currentTimeMillis() < deadline) {
+                Thread.sleep(delayMs);
+                delayMs = Math.min(2 * delayMs, 100);
+                warm = capture.read(mat);
             }
         } catch (InterruptedException ex) {
             // reset interrupt to be nice
             Thread.currentThread().interrupt();
         }
-        if (!capture.read(mat)) {
+        if (!warm) {
             throw new Exception("read() Error: Could not read frame in start().");
         }
 
@@ -297,6 +307,19 @@ public class FixedOpenCVFrameGrabber extends FrameGrabber {
         } else {
             returnMatrix = mat;
         }
-        return converter.convert(returnMatrix);
+
+        // retrieve() and cvtColor() write into the existing Mat, so the data only moves when the
+        // dimensions change. The converter creates new pointers to check for that on every call.
+        int rows = returnMatrix.rows();
+        int cols = returnMatrix.cols();
+        int type = returnMatrix.type();
+        if (returnFrame == null || returnMatrix != lastMatrix || rows != lastRows || cols != lastCols || type != lastType) {
+            returnFrame = converter.convert(returnMatrix);
+            lastMatrix = returnMatrix;
+            lastRows = rows;
+            lastCols = cols;
+            lastType = type;
+        }
+        return returnFrame;
     }
 }
@@ -0,0 +1,76 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Creates frames that refer to a rectangular region of a larger 8 or 16 bit frame without
+ * copying any pixels. The region starts at an offset into the original buffer and keeps the original
+ * stride, so converters only ever touch the pixels inside the region.
+ * <p>
+ * The returned frame and its buffer get reused, so they are only valid until the next call.
+ * Views get cached per source buffer, so grabbers that alternate between a few buffers don't
+ * create new views for every frame. Views only get recreated when the region moves.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class FrameCropper {
+
+    Frame crop(Frame frame, int x, int y, int width, int height) {
+        Buffer buffer = frame.image[0];
+        int offset = y * frame.imageStride + x * frame.imageChannels; // in elements
+
+        cropped.image[0] = getSlice(buffer, offset);
+
+        cropped.imageWidth = width;
+        cropped.imageHeight = height;
+        cropped.imageDepth = frame.imageDepth;
+        cropped.imageChannels = frame.imageChannels;
+        cropped.imageStride = frame.imageStride;
+        cropped.timestamp = frame.timestamp;
+        return cropped;
+    }
+
+    private Buffer getSlice(Buffer buffer, int offset) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == buffer && offsets[i] == offset)
+                return slices[i];
+        }
+
+        // Replace entries in round robin order
+        int i = next;
+        next = (next + 1) % buffers.length;
+        buffers[i] = buffer;
+        offsets[i] = offset;
+        slices[i] = slice(buffer, offset);
+        return slices[i];
+    }
+
+    private static Buffer slice(Buffer buffer, int offset) {
+        if (buffer instanceof ByteBuffer) {
+            ByteBuffer view = ((ByteBuffer) buffer).duplicate();
+            view.limit(view.capacity()).position(offset);
+            return view.slice().order(((ByteBuffer) buffer).order());
+        } else if (buffer instanceof ShortBuffer) {
+            ShortBuffer view = ((ShortBuffer) buffer).duplicate();
+            view.limit(view.capacity()).position(offset);
+            return view.slice();
+        }
+        throw new IllegalArgumentException("Unsupported buffer type: " + buffer.getClass().getSimpleName());
+    }
+
+    FrameCropper() {
+        cropped.image = new Buffer[1];
+    }
+
+    private final Frame cropped = new Frame();
+    private final Buffer[] buffers = new Buffer[8];
+    private final int[] offsets = new int[8];
+    private final Buffer[] slices = new Buffer[8];
+    private int next = 0;
+
+}
@@ -0,0 +1,144 @@
+package us.hebi.matlab.streaming;
+
+import java.util.Locale;
+
+/**
+ * Immutable snapshot of the statistics of a {@link BackgroundFrameGrabber}. Counts
+ * and latencies accumulate from the start of the acquisition or the last reset.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class FrameGrabberStatistics {
+
+    FrameGrabberStatistics(long producedFrames, long droppedFrames, long nullFrames, long skippedFrames,
+                           long consumedFrames, long reconnects, double framesPerSecond, double timeToFirstFrameMs,
+                           LatencyStatistics grabLatency, LatencyStatistics lockWaitLatency,
+                           LatencyStatistics conversionLatency, LatencyStatistics publishToConsumeLatency) {
+        this.producedFrames = producedFrames;
+        this.droppedFrames = droppedFrames;
+        this.nullFrames = nullFrames;
+        this.skippedFrames = skippedFrames;
+        this.consumedFrames = consumedFrames;
+        this.reconnects = reconnects;
+        this.framesPerSecond = framesPerSecond;
+        this.timeToFirstFrameMs = timeToFirstFrameMs;
+        this.grabLatency = grabLatency;
+        this.lockWaitLatency = lockWaitLatency;
+        this.conversionLatency = conversionLatency;
+        this.publishToConsumeLatency = publishToConsumeLatency;
+    }
+
+    /**
+     * @return number of frames that have been published to shared memory
+     */
+    public long getProducedFrames() {
+        return producedFrames;
+    }
+
+    /**
+     * @return number of frames that got replaced by a newer frame before anyone locked them, or
+     * that got discarded because no slot became available in time. Readers that don't lock slots
+     * don't count as having read a frame.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return number of times the grabber returned no frame, e.g., due to a disconnected stream
+     */
+    public long getNullFrames() {
+        return nullFrames;
+    }
+
+    /**
+     * @return number of frames that could not be converted, e.g., due to unexpected image dimensions
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * @return number of new frames that have been locked by readers
+     */
+    public long getConsumedFrames() {
+        return consumedFrames;
+    }
+
+    /**
+     * @return number of attempts to restart the grabber after the source disconnected or stalled
+     */
+    public long getReconnects() {
+        return reconnects;
+    }
+
+    /**
+     * @return recent rate of produced frames, smoothed over roughly the last second
+     */
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /**
+     * @return time between starting the grabber and receiving its first frame, which includes
+     * connecting to the source and any warm-up. Measured once when opening, so it is not affected
+     * by resets.
+     */
+    public double getTimeToFirstFrameMs() {
+        return timeToFirstFrameMs;
+    }
+
+    /**
+     * @return time spent in the grabber, which includes waiting for the device and decoding
+     */
+    public LatencyStatistics getGrabLatency() {
+        return grabLatency;
+    }
+
+    /**
+     * @return time spent waiting for a free slot in shared memory
+     */
+    public LatencyStatistics getLockWaitLatency() {
+        return lockWaitLatency;
+    }
+
+    /**
+     * @return time spent converting frames to MATLAB's format
+     */
+    public LatencyStatistics getConversionLatency() {
+        return conversionLatency;
+    }
+
+    /**
+     * @return time between publishing a frame and a reader locking it
+     */
+    public LatencyStatistics getPublishToConsumeLatency() {
+        return publishToConsumeLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "FrameGrabberStatistics{fps=%.1f produced=%d dropped=%d null=%d skipped=%d consumed=%d reconnects=%d firstFrame=%.1fms\n" +
+                        "  grab:             %s\n" +
+                        "  lockWait:         %s\n" +
+                        "  conversion:       %s\n" +
+                        "  publishToConsume: %s}",
+                framesPerSecond, producedFrames, droppedFrames, nullFrames, skippedFrames, consumedFrames, reconnects, timeToFirstFrameMs,
+                grabLatency, lockWaitLatency, conversionLatency, publishToConsumeLatency);
+    }
+
+    private final long producedFrames;
+    private final long droppedFrames;
+    private final long nullFrames;
+    private final long skippedFrames;
+    private final long consumedFrames;
+    private final long reconnects;
+    private final double framesPerSecond;
+    private final double timeToFirstFrameMs;
+    private final LatencyStatistics grabLatency;
+    private final LatencyStatistics lockWaitLatency;
+    private final LatencyStatistics conversionLatency;
+    private final LatencyStatistics publishToConsumeLatency;
+
+}
@@ -0,0 +1,19 @@
+package us.hebi.matlab.streaming;
+
+/**
+ * Management interface that exposes the statistics of a {@link BackgroundFrameGrabber}
+ * via JMX, e.g., for monitoring with JConsole or VisualVM. Each running grabber gets
+ * registered as "us.hebi.matlab.streaming:type=BackgroundFrameGrabber,name=VideoInput-N".
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public interface FrameGrabberStatisticsMXBean {
+
+    FrameGrabberStatistics getStatistics();
+
+    double getFramesPerSecond();
+
+    void resetStatistics();
+
+}
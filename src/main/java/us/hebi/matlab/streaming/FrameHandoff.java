@@ -0,0 +1,155 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Hands decoded frames from the acquisition thread to whichever thread does the expensive
+ * conversion to MATLAB's format, e.g., a reader that converts on demand, or a dedicated
+ * conversion thread that works on one frame while the next one gets decoded. Grabbers
+ * reuse their frame memory, so the pixels need to be copied, but a plain copy is much
+ * cheaper than a conversion. The copies get reused once they have been allocated.
+ * <p>
+ * Uses a {@link SlotRing}, so for the LATEST policy storing never waits and the converting
+ * thread always gets the most recent frame. QUEUE_BLOCK makes storing wait until there is
+ * a free copy, so that no frame gets lost between the two threads. The dropping queues never
+ * wait either, but discard frames while all copies are queued, e.g., for recording.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class FrameHandoff {
+
+    /**
+     * @return true if the frame is an 8 or 16 bit image with a single buffer
+     */
+    static boolean isSupported(Frame frame) {
+        return frame.image != null && (frame.image[0] instanceof ByteBuffer || frame.image[0] instanceof ShortBuffer);
+    }
+
+    /**
+     * Allocates all copies up front, so that storing frames of the same layout doesn't allocate
+     * any memory, e.g., when the handoff gets attached to a running acquisition.
+     *
+     * @param template pixel buffer of the expected frames. Only the type and the capacity get used.
+     */
+    void preallocate(Buffer template) {
+        checkArgument(template instanceof ByteBuffer || template instanceof ShortBuffer, "Unsupported buffer");
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new Frame();
+            frames[i].image = new Buffer[]{allocateLike(template)};
+        }
+    }
+
+    /**
+     * Copies a supported frame into a free buffer. Gets called by the acquisition thread.
+     *
+     * @return true if a frame got lost, i.e., if this replaced a frame that has not been
+     * acquired, or if the frame got discarded because the queue was full
+     */
+    boolean store(Frame frame, long frameNumber, double timestamp) throws InterruptedException {
+        checkArgument(isSupported(frame), "Unsupported frame");
+        Buffer source = frame.image[0];
+
+        int slot = ring.acquireWriteSlot(blocking ? STORE_TIMEOUT_MS : 0);
+        while (slot < 0 && blocking && !closed) {
+            slot = ring.acquireWriteSlot(STORE_TIMEOUT_MS);
+        }
+        if (slot < 0)
+            return !closed;
+
+        // (Re-)allocate in case the layout of the source has changed
+        Frame copy = frames[slot];
+        if (copy == null || copy.image[0].capacity() != source.capacity()
+                || (copy.image[0] instanceof ByteBuffer) != (source instanceof ByteBuffer)) {
+            copy = frames[slot] = new Frame();
+            copy.image = new Buffer[]{allocateLike(source)};
+        }
+        copy.imageWidth = frame.imageWidth;
+        copy.imageHeight = frame.imageHeight;
+        copy.imageDepth = frame.imageDepth;
+        copy.imageChannels = frame.imageChannels;
+        copy.imageStride = frame.imageStride;
+        if (source instanceof ByteBuffer) {
+            ByteBuffer view = sourceViews.get((ByteBuffer) source);
+            view.clear();
+            ((ByteBuffer) copy.image[0]).clear();
+            ((ByteBuffer) copy.image[0]).put(view).clear();
+        } else {
+            ShortBuffer view = sourceViews.get((ShortBuffer) source);
+            view.clear();
+            ((ShortBuffer) copy.image[0]).clear();
+            ((ShortBuffer) copy.image[0]).put(view).clear();
+        }
+
+        frameNumbers[slot] = frameNumber;
+        timestamps[slot] = timestamp;
+        return ring.publish();
+    }
+
+    private static Buffer allocateLike(Buffer source) {
+        if (source instanceof ByteBuffer)
+            return ByteBuffer.allocateDirect(source.capacity());
+        return ByteBuffer.allocateDirect(source.capacity() * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+    }
+
+    /**
+     * Waits for a frame that has not been acquired before
+     *
+     * @return index of the locked frame, or -1 on timeout
+     */
+    int acquireNext(long timeoutMs) throws InterruptedException {
+        return ring.acquireNextReadSlot(timeoutMs);
+    }
+
+    void release() {
+        ring.releaseReadSlot();
+    }
+
+    Frame getFrame(int slot) {
+        return frames[slot];
+    }
+
+    long getFrameNumber(int slot) {
+        return frameNumbers[slot];
+    }
+
+    double getTimestamp(int slot) {
+        return timestamps[slot];
+    }
+
+    void close() throws InterruptedException {
+        closed = true;
+        ring.close();
+    }
+
+    /**
+     * @param numFrames number of frame copies. Two copies let one thread convert while the other
+     *                  one copies, and a third one lets on demand readers skip stale frames.
+     * @param policy    LATEST to always convert the most recent frame, QUEUE_BLOCK to convert all frames,
+     *                  or one of the dropping queues to process frames in order without ever waiting
+     */
+    FrameHandoff(int numFrames, DeliveryPolicy policy) {
+        this.ring = new SlotRing(numFrames, policy);
+        this.blocking = policy == DeliveryPolicy.QUEUE_BLOCK;
+        this.frames = new Frame[numFrames];
+        this.frameNumbers = new long[numFrames];
+        this.timestamps = new double[numFrames];
+    }
+
+    private static final long STORE_TIMEOUT_MS = 1000;
+    private final SlotRing ring;
+    private final boolean blocking;
+    private final Frame[] frames;
+    private final long[] frameNumbers;
+    private final double[] timestamps;
+    private final BufferViews sourceViews = new BufferViews();
+    private volatile boolean closed = false;
+
+}
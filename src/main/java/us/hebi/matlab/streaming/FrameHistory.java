@@ -0,0 +1,124 @@
+package us.hebi.matlab.streaming;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Keeps copies of the most recent converted frames in a separate shared memory region, so
+ * readers can copy a whole burst of frames at once. The pixels of all frames are laid out back
+ * to back, which MATLAB can map as a single HxWxCxN array. Frames get stored in ring order,
+ * i.e., frame i goes into entry (i % N).
+ * <p>
+ * The header is [uint64 count][uint64 frame[N]][double timestamp[N]], where count is the
+ * total number of stored frames. The newest frame is at entry (count-1) % N.
+ * <p>
+ * Readers lock the whole history while copying. The writer never waits for readers and
+ * skips frames that arrive while the history is locked, so the frame numbers of a burst
+ * may have gaps.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class FrameHistory implements Closeable {
+
+    /**
+     * Copies the pixels of a converted frame into the next entry unless a reader holds the lock.
+     * Only gets called by the writer.
+     *
+     * @param pixels buffer with the converted pixels between position and limit
+     * @return true if the frame was stored
+     */
+    boolean store(ByteBuffer pixels, long frameNumber, double timestamp) {
+        synchronized (this) {
+            if (locked || closed)
+                return false;
+            writing = true;
+        }
+        try {
+            int entry = (int) (count % length);
+            memory.clearSlotBuffer(entry).put(pixels);
+            ByteBuffer header = memory.clearHeaderBuffer();
+            header.putLong(FRAMES_OFFSET + entry * 8, frameNumber);
+            header.putDouble(FRAMES_OFFSET + (length + entry) * 8, timestamp);
+            header.putLong(COUNT_OFFSET, ++count);
+        } finally {
+            synchronized (this) {
+                writing = false;
+                notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prevents the writer from modifying the history until it gets released. Waits for
+     * an ongoing write to finish.
+     *
+     * @return total number of frames that have been stored
+     */
+    synchronized long lock() throws InterruptedException {
+        while (writing)
+            wait();
+        locked = true;
+        return count;
+    }
+
+    synchronized void release() {
+        locked = false;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    int getHeaderBytes() {
+        return memory.getHeaderBytes();
+    }
+
+    File getBackingFile() {
+        return memory.getBackingFile();
+    }
+
+    /**
+     * Waits for an ongoing write to finish and unmaps the memory. Later writes get ignored.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            boolean interrupted = false;
+            while (writing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        memory.close();
+    }
+
+    FrameHistory(int length, int frameBytes, BackingStore store) {
+        checkArgument(length > 0, "History needs to hold at least one frame");
+        this.length = length;
+        this.memory = SharedMemory.allocate(FRAMES_OFFSET + 16 * length, frameBytes, length, store);
+    }
+
+    private final int length;
+    private final SharedMemory memory;
+    private long count = 0; // only modified by the writer
+    private boolean locked = false;
+    private boolean writing = false;
+    private boolean closed = false;
+    private static final int COUNT_OFFSET = 0;
+    private static final int FRAMES_OFFSET = 8;
+
+}
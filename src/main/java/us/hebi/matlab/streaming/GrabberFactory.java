@@ -0,0 +1,113 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import static org.bytedeco.javacpp.avutil.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Creates an appropriate frame grabber for a device location and applies a {@link GrabberProfile}.
+ * Local devices get opened by OpenCV, and network streams as well as video files get opened
+ * by FFmpeg. The returned grabbers have not been started yet, so callers can still change
+ * settings such as the timeout or the image mode.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class GrabberFactory {
+
+    /**
+     * @param uri     one based device number, file, device path, or url
+     * @param profile name of the profile, e.g., "lowest-latency"
+     */
+    public static FrameGrabber createGrabber(Object uri, String profile) throws URISyntaxException, IOException {
+        return createGrabber(new DeviceLocation(uri), GrabberProfile.forName(profile));
+    }
+
+    public static FrameGrabber createGrabber(DeviceLocation location, GrabberProfile profile) {
+        checkNotNull(location, "Device location can't be empty");
+        checkNotNull(profile, "Profile can't be empty");
+
+        // Don't initialize the same native libraries concurrently with a preload
+        NativeLoader.Backend backend = NativeLoader.getBackend(location);
+        NativeLoader.awaitPreload(backend);
+
+        // 1, 2, 3, etc. Java uses zero based indexing
+        if (location.isNumber())
+            return new FixedOpenCVFrameGrabber(location.getDeviceNumber() - 1);
+
+        // http://<ip>/mjpeg/, rtsp://..., or local video files
+        String path = location.getPath();
+        if (backend == NativeLoader.Backend.FFMPEG) {
+            FFmpegFrameGrabber grabber = new NegotiableFFmpegFrameGrabber(path);
+
+            // Sometimes mjpeg sources complain when the format is not
+            // set. For now we assume that http:// urls are mjpeg
+            // streams, which has been true for all ip cameras that
+            // have been tested so far.
+            if (location.hasUrlScheme("http"))
+                grabber.setFormat("mjpeg");
+
+            profile.apply(grabber, location);
+            return grabber;
+        }
+
+        // Device path, e.g., /dev/video0
+        return new FixedOpenCVFrameGrabber(path);
+    }
+
+    /**
+     * Lets the backend produce the pixel format that the output format needs, so that every
+     * frame goes through at most one color conversion. FFmpeg converts decoded frames with
+     * swscale, which takes gray frames directly from the luma plane of YUV sources, rather than
+     * converting to BGR first and then weighting the colors again. Only grabbers that were created
+     * by this factory and still have the default settings get changed, so explicitly selected
+     * image modes, including COLOR, are respected.
+     * <p>
+     * OpenCV grabbers are left alone. Devices already deliver BGR, so requesting gray would
+     * only move the same conversion into the grabber.
+     *
+     * @return true if the grabber settings have been changed. Needs to be called before start.
+     */
+    static boolean negotiatePixelFormat(FrameGrabber grabber, MatlabImageConverterProvider format) {
+        boolean grayOutput = format == StandardOutputFormat.GRAY8 || format == StandardOutputFormat.MONO16;
+        if (!grayOutput || !(grabber instanceof NegotiableFFmpegFrameGrabber))
+            return false;
+        NegotiableFFmpegFrameGrabber ffmpeg = (NegotiableFFmpegFrameGrabber) grabber;
+        if (ffmpeg.explicitImageMode || ffmpeg.getImageMode() != FrameGrabber.ImageMode.COLOR || ffmpeg.getPixelFormat() != AV_PIX_FMT_BGR24)
+            return false;
+        ffmpeg.negotiateImageMode(FrameGrabber.ImageMode.GRAY);
+        return true;
+    }
+
+    /**
+     * Remembers whether users have selected an image mode, because the default is COLOR as well
+     */
+    static class NegotiableFFmpegFrameGrabber extends FFmpegFrameGrabber {
+
+        NegotiableFFmpegFrameGrabber(String filename) {
+            super(filename);
+        }
+
+        @Override
+        public void setImageMode(ImageMode imageMode) {
+            explicitImageMode = true;
+            super.setImageMode(imageMode);
+        }
+
+        void negotiateImageMode(ImageMode imageMode) {
+            super.setImageMode(imageMode);
+        }
+
+        private boolean explicitImageMode = false;
+
+    }
+
+    private GrabberFactory() {
+    }
+
+}
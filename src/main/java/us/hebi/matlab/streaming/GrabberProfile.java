@@ -0,0 +1,105 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+/**
+ * Named sets of FFmpeg options that trade off latency, decoding cost, and the time it takes
+ * to get the first frame. Format options get passed to avformat_open_input and apply to
+ * the demuxer and network protocols. Video options get passed to the decoder.
+ * <p>
+ * Profiles only apply to sources that get opened by FFmpeg, i.e., network streams and
+ * video files. Local devices get opened by OpenCV and are not affected.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public enum GrabberProfile {
+
+    /**
+     * Low latency RTSP options that HebiCam has always used, i.e., UDP transport without
+     * reordering delay. Leaves buffering and decoding at FFmpeg's defaults.
+     */
+    DEFAULT("default") {
+        @Override
+        void apply(FFmpegFrameGrabber grabber, DeviceLocation location) {
+            if (location.hasUrlScheme("rtsp")) {
+                grabber.setOption("rtsp_transport", "udp");
+                grabber.setOption("max_delay", "0"); // disable reordering delay
+                grabber.setOption("reorder_queue_size", "1");
+            }
+        }
+    },
+
+    /**
+     * Minimizes the time between capture and delivery. Disables input buffering and
+     * decodes on a single thread, because frame threading delays the output by one
+     * frame per thread. Lost UDP packets may cause artifacts.
+     */
+    LOWEST_LATENCY("lowest-latency") {
+        @Override
+        void apply(FFmpegFrameGrabber grabber, DeviceLocation location) {
+            DEFAULT.apply(grabber, location);
+            grabber.setOption("fflags", "nobuffer");
+            grabber.setVideoOption("flags", "low_delay");
+            grabber.setVideoOption("threads", "1");
+        }
+    },
+
+    /**
+     * Keeps up with high resolution and high frame rate streams. Uses reliable TCP transport
+     * for RTSP, decodes on all cores, and skips the deblocking filter of frames that no other
+     * frames depend on. Adds a few frames of latency and slightly lowers the image quality
+     * of non-reference frames.
+     */
+    MAX_THROUGHPUT("max-throughput") {
+        @Override
+        void apply(FFmpegFrameGrabber grabber, DeviceLocation location) {
+            if (location.hasUrlScheme("rtsp"))
+                grabber.setOption("rtsp_transport", "tcp");
+            grabber.setVideoOption("threads", "auto");
+            grabber.setVideoOption("skip_loop_filter", "nonref");
+        }
+    },
+
+    /**
+     * Minimizes the time until the first frame arrives by limiting the amount of data that
+     * gets analyzed to detect the stream parameters. Sources that don't announce their
+     * parameters up front may fail to open, or start with unknown dimensions.
+     */
+    FAST_START("fast-start") {
+        @Override
+        void apply(FFmpegFrameGrabber grabber, DeviceLocation location) {
+            DEFAULT.apply(grabber, location);
+            grabber.setOption("probesize", "32768"); // [bytes]
+            grabber.setOption("analyzeduration", "100000"); // [us]
+            grabber.setOption("fflags", "nobuffer");
+        }
+    };
+
+    /**
+     * Sets the options of this profile. Gets called before the grabber gets started.
+     */
+    abstract void apply(FFmpegFrameGrabber grabber, DeviceLocation location);
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name case insensitive name, e.g., "lowest-latency"
+     */
+    public static GrabberProfile forName(String name) {
+        for (GrabberProfile profile : values()) {
+            if (profile.name.equalsIgnoreCase(name))
+                return profile;
+        }
+        throw new IllegalArgumentException("Unknown grabber profile: " + name);
+    }
+
+    GrabberProfile(String name) {
+        this.name = name;
+    }
+
+    private final String name;
+
+}
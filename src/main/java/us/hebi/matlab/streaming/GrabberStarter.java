@@ -0,0 +1,141 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Starts grabbers and waits for their first frame, which is needed to learn the dimensions,
+ * channels, and bit depth of the stream. Sources that return no frame right away, e.g., while
+ * a device warms up or while FFmpeg skips non-video packets, get polled with an increasing
+ * delay rather than a fixed sleep, so fast sources don't wait for slow polls.
+ * <p>
+ * Starts can run on a shared pool, so that multiple cameras connect concurrently and opening
+ * a rig takes as long as the slowest camera rather than the sum of all of them.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class GrabberStarter {
+
+    /**
+     * Starts the grabber and polls until it returns a frame or the grabber's timeout elapses.
+     * The grabber gets stopped again if no frame arrives.
+     */
+    static Frame start(FrameGrabber grabber) throws FrameGrabber.Exception {
+        grabber.start();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(grabber.getTimeout(), MIN_TIMEOUT_MS));
+        long startNanos = System.nanoTime();
+        long delayMs = INITIAL_POLL_DELAY_MS;
+        try {
+            while (true) {
+                Frame frame = grabber.grabFrame();
+                if (frame != null && frame.image != null)
+                    return frame;
+                if (System.nanoTime() - startNanos > timeoutNanos)
+                    break;
+                Thread.sleep(delayMs);
+                delayMs = Math.min(2 * delayMs, MAX_POLL_DELAY_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            grabber.stop();
+            throw new FrameGrabber.Exception("Interrupted while waiting for the first frame", e);
+        }
+        grabber.stop();
+        throw new FrameGrabber.Exception("FrameGrabber did not return a frame");
+    }
+
+    /**
+     * Starts all grabbers concurrently and returns their first frames in the same order. All
+     * grabbers get stopped again if any of them fails.
+     */
+    static Frame[] startAll(FrameGrabber[] grabbers) throws FrameGrabber.Exception {
+        Future<?>[] starts = new Future<?>[grabbers.length];
+        for (int i = 0; i < grabbers.length; i++) {
+            final FrameGrabber grabber = checkNotNull(grabbers[i], "FrameGrabber can't be empty");
+            starts[i] = submit(new Callable<Frame>() {
+                @Override
+                public Frame call() throws FrameGrabber.Exception {
+                    return start(grabber);
+                }
+            });
+        }
+
+        Frame[] frames = new Frame[grabbers.length];
+        FrameGrabber.Exception failure = null;
+        for (int i = 0; i < grabbers.length; i++) {
+            try {
+                frames[i] = (Frame) getResult(starts[i]);
+            } catch (FrameGrabber.Exception e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        if (failure == null)
+            return frames;
+
+        for (int i = 0; i < grabbers.length; i++) {
+            if (frames[i] != null) {
+                try {
+                    grabbers[i].stop();
+                } catch (FrameGrabber.Exception e) {
+                    // Report the original failure
+                }
+            }
+        }
+        throw failure;
+    }
+
+    static <T> Future<T> submit(Callable<T> task) {
+        return StartExecutorHolder.EXECUTOR.submit(task);
+    }
+
+    /**
+     * Waits for the result and unwraps exceptions that were thrown by the task
+     */
+    static <T> T getResult(Future<T> future) throws FrameGrabber.Exception {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new FrameGrabber.Exception("Interrupted while starting grabber", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FrameGrabber.Exception)
+                throw (FrameGrabber.Exception) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new FrameGrabber.Exception("Failed to start grabber", cause);
+        }
+    }
+
+    /**
+     * Lazily creates the pool on first use
+     */
+    private static class StartExecutorHolder {
+        private static final AtomicInteger threadCounter = new AtomicInteger(0);
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        thread.setName("GrabberStarter-" + threadCounter.getAndIncrement());
+                        return thread;
+                    }
+                });
+    }
+
+    private static final long INITIAL_POLL_DELAY_MS = 1;
+    private static final long MAX_POLL_DELAY_MS = 100;
+    private static final long MIN_TIMEOUT_MS = 1000;
+
+}
@@ -0,0 +1,78 @@
+package us.hebi.matlab.streaming;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records durations in fixed logarithmic buckets, so that recording is cheap and
+ * never allocates. Every power of two gets split into four sub-buckets, which
+ * limits the error of the reported percentiles to 25%.
+ * <p>
+ * Recording is thread safe. Snapshots that get taken concurrently may be
+ * slightly inconsistent, e.g., the count may be off by one.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class LatencyHistogram {
+
+    void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        buckets.incrementAndGet(getBucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long prevMax;
+        while (nanos > (prevMax = max.get())) {
+            if (max.compareAndSet(prevMax, nanos))
+                break;
+        }
+    }
+
+    LatencyStatistics snapshot() {
+        long[] counts = new long[NUM_BUCKETS];
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new LatencyStatistics(counts, count.get(), sum.get(), max.get());
+    }
+
+    void reset() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int getBucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1) + subBucket;
+    }
+
+    /**
+     * @return exclusive upper bound of the values that get recorded in a bucket
+     */
+    static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket + 1;
+        int shift = bucket / SUB_BUCKETS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long upperBound = (long) (SUB_BUCKETS + subBucket + 1) << shift;
+        return upperBound > 0 ? upperBound : Long.MAX_VALUE; // overflow of the last bucket
+    }
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int NUM_BUCKETS = getBucket(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+}
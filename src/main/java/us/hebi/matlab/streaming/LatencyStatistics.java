@@ -0,0 +1,87 @@
+package us.hebi.matlab.streaming;
+
+import java.util.Locale;
+
+/**
+ * Immutable snapshot of the durations that have been recorded for one stage of the
+ * acquisition pipeline. Percentiles are accurate to within 25%.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class LatencyStatistics {
+
+    LatencyStatistics(long[] bucketCounts, long count, long sumNanos, long maxNanos) {
+        this.bucketCounts = bucketCounts;
+        this.count = count;
+        this.sumNanos = sumNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMs() {
+        return count == 0 ? 0 : sumNanos * 1E-6 / count;
+    }
+
+    public double getMaxMs() {
+        return maxNanos * 1E-6;
+    }
+
+    public double getP50Ms() {
+        return getPercentileMs(50);
+    }
+
+    public double getP90Ms() {
+        return getPercentileMs(90);
+    }
+
+    public double getP99Ms() {
+        return getPercentileMs(99);
+    }
+
+    public double getP999Ms() {
+        return getPercentileMs(99.9);
+    }
+
+    /**
+     * @param percentile value between 0 and 100
+     * @return duration that the specified percentage of all recorded durations did not exceed
+     */
+    public double getPercentileMs(double percentile) {
+        if (count == 0)
+            return 0;
+
+        // Use the bucket counts rather than the total in case they are slightly out of sync
+        long total = 0;
+        for (long bucketCount : bucketCounts) {
+            total += bucketCount;
+        }
+
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank && seen > 0)
+                return Math.min(LatencyHistogram.getUpperBound(i), maxNanos) * 1E-6;
+        }
+        return getMaxMs();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                getCount(), getMeanMs(), getP50Ms(), getP99Ms(), getMaxMs());
+    }
+
+    private final long[] bucketCounts;
+    private final long count;
+    private final long sumNanos;
+    private final long maxNanos;
+
+}
@@ -0,0 +1,37 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacpp.opencv_core;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+
+/**
+ * Splits multi-channel images into reused single channel planes. MatVector creates a new
+ * wrapper for every element access, so the wrappers get cached after the first split. They
+ * remain valid because OpenCV only reallocates the data of each plane, but never the vector.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatPlanes {
+
+    /**
+     * @return planes of the image that are valid until the next call
+     */
+    Mat[] split(Mat mat) {
+        opencv_core.split(mat, vector);
+        return planes;
+    }
+
+    MatPlanes(int numPlanes) {
+        vector = new MatVector(numPlanes);
+        planes = new Mat[numPlanes];
+        for (int i = 0; i < numPlanes; i++) {
+            planes[i] = vector.get(i);
+        }
+    }
+
+    // Vectors will be released automatically by the garbage collector
+    private final MatVector vector;
+    private final Mat[] planes;
+
+}
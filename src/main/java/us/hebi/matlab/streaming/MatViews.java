@@ -0,0 +1,134 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.javacv.Frame;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Caches Mat headers that wrap regions of direct buffers, e.g., the slots of a shared memory
+ * region, so that OpenCV can write its results straight into them. The headers don't own the
+ * memory, and only get created the first time a region is used.
+ * <p>
+ * Also wraps the pixels of frames, which replaces OpenCVFrameConverter. The converter creates
+ * new pointers for every frame in order to check whether the buffer has moved, whereas cache
+ * hits here don't allocate anything.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatViews {
+
+    /**
+     * @param buffer direct buffer that outlives the returned Mat
+     * @param offset position of the first element in the buffer
+     * @return Mat that shares the memory of the buffer starting at the offset
+     */
+    Mat get(ByteBuffer buffer, int offset, int rows, int cols, int type) {
+        return get(buffer, offset, rows, cols, type, Mat.AUTO_STEP);
+    }
+
+    /**
+     * @param frame interleaved frame with a direct buffer, e.g., from a grabber
+     * @return Mat that shares the pixels of the frame, or null if the frame has no image
+     * or an unsupported depth
+     */
+    Mat get(Frame frame) {
+        if (frame.image == null || frame.image[0] == null)
+            return null;
+        int depth = getMatDepth(frame.imageDepth);
+        if (depth < 0)
+            return null;
+        Buffer buffer = frame.image[0];
+        long step = (long) frame.imageStride * (Math.abs(frame.imageDepth) / 8);
+        return get(buffer, buffer.position(), frame.imageHeight, frame.imageWidth, CV_MAKETYPE(depth, frame.imageChannels), step);
+    }
+
+    private Mat get(Buffer buffer, int offset, int rows, int cols, int type, long step) {
+        for (int i = 0; i < size; i++) {
+            if (buffers[i] == buffer && offsets[i] == offset && this.rows[i] == rows
+                    && this.cols[i] == cols && types[i] == type && steps[i] == step)
+                return mats[i];
+        }
+
+        checkArgument(buffer.isDirect(), "Buffer must be direct");
+        Buffer view = duplicate(buffer);
+        view.limit(view.capacity()).position(offset);
+
+        // Grow until there is an entry for every plane of every slot, e.g., 3 planes for each of
+        // 10 slots. Beyond that, e.g., for a moving region of interest, replace entries in round
+        // robin order.
+        if (size == mats.length && size < MAX_ENTRIES)
+            grow(Math.min(2 * size, MAX_ENTRIES));
+        int i;
+        if (size < mats.length) {
+            i = size++;
+        } else {
+            i = next;
+            next = (next + 1) % mats.length;
+        }
+        buffers[i] = buffer;
+        offsets[i] = offset;
+        this.rows[i] = rows;
+        this.cols[i] = cols;
+        types[i] = type;
+        steps[i] = step;
+        mats[i] = new Mat(rows, cols, type, new Pointer(view), step);
+        return mats[i];
+    }
+
+    private void grow(int capacity) {
+        buffers = Arrays.copyOf(buffers, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+        cols = Arrays.copyOf(cols, capacity);
+        types = Arrays.copyOf(types, capacity);
+        steps = Arrays.copyOf(steps, capacity);
+        mats = Arrays.copyOf(mats, capacity);
+    }
+
+    private static Buffer duplicate(Buffer buffer) {
+        if (buffer instanceof ByteBuffer)
+            return ((ByteBuffer) buffer).duplicate();
+        if (buffer instanceof ShortBuffer)
+            return ((ShortBuffer) buffer).duplicate();
+        throw new IllegalArgumentException("Unsupported buffer type: " + buffer.getClass().getSimpleName());
+    }
+
+    /**
+     * @return OpenCV depth for a Frame depth, or -1 if there is no equivalent
+     */
+    private static int getMatDepth(int frameDepth) {
+        switch (frameDepth) {
+            case Frame.DEPTH_UBYTE:
+                return CV_8U;
+            case Frame.DEPTH_BYTE:
+                return CV_8S;
+            case Frame.DEPTH_USHORT:
+                return CV_16U;
+            case Frame.DEPTH_SHORT:
+                return CV_16S;
+            default:
+                return -1;
+        }
+    }
+
+    private Buffer[] buffers = new Buffer[16];
+    private int[] offsets = new int[16];
+    private int[] rows = new int[16];
+    private int[] cols = new int[16];
+    private int[] types = new int[16];
+    private long[] steps = new long[16];
+    private Mat[] mats = new Mat[16];
+    private int size = 0;
+    private int next = 0;
+
+    private static final int MAX_ENTRIES = 256;
+
+}
@@ -12,5 +12,10 @@ import java.nio.ByteBuffer;
  * @since 01 May 2015
  */
 public interface MatlabImageConverter {
-    public void writeFrameToBuffer(Frame source, ByteBuffer destination);
+
+    /**
+     * @return false if the frame has been skipped, e.g., because of unexpected image dimensions
+     */
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination);
+
 }
@@ -1,7 +1,6 @@
 package us.hebi.matlab.streaming;
 
 import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.OpenCVFrameConverter;
 
 import java.nio.ByteBuffer;
 
@@ -17,64 +16,41 @@ import static us.hebi.matlab.streaming.Preconditions.*;
 class MatlabImageConverterBGR implements MatlabImageConverter {
 
     @Override
-    public void writeFrameToBuffer(Frame source, ByteBuffer destination) {
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
         checkNotNull(source);
         checkNotNull(destination);
 
         // Convert to OpenCV format and use OpenCV to reshape memory
-        Mat mat = matConverter.convertToMat(source); // Internally reuses the same Mat
+        Mat mat = sourceViews.get(source); // Reuses the same Mat for each source buffer
         if (mat == null || mat.rows() != height || mat.cols() != width || mat.channels() != 3) {
             System.err.println("Unexpected image dimensions. Skipping frame.");
-            return;
+            return false;
         }
 
-        // Split into individual colors and and transpose each channel to
-        // get Matlab-like column major format
-        split(mat, bgr);
-        transpose(bgr.get(2), rgbTransposed.get(0));
-        transpose(bgr.get(1), rgbTransposed.get(1));
-        transpose(bgr.get(0), rgbTransposed.get(2));
-
-        // Write to dest buffer
-        r.position(0);
-        g.position(0);
-        b.position(0);
-        destination.put(r).put(g).put(b);
+        // Split into individual colors and and transpose each channel directly
+        // into the destination buffer to get Matlab-like column major format
+        int offset = destination.position();
+        int planeBytes = width * height;
+        Mat[] bgr = planes.split(mat);
+        transpose(bgr[2], destinationViews.get(destination, offset, width, height, CV_8U));
+        transpose(bgr[1], destinationViews.get(destination, offset + planeBytes, width, height, CV_8U));
+        transpose(bgr[0], destinationViews.get(destination, offset + 2 * planeBytes, width, height, CV_8U));
+        destination.position(offset + 3 * planeBytes);
+        return true;
 
     }
 
     MatlabImageConverterBGR(int width, int height) {
-        // Initialize all pointers with dummy data
         this.width = width;
         this.height = height;
-        Mat mat = new Mat(height, width, CV_8UC3);
-
-        // Convert
-        split(mat, bgr);
-        transpose(bgr.get(2), rgbTransposed.get(0));
-        transpose(bgr.get(1), rgbTransposed.get(1));
-        transpose(bgr.get(0), rgbTransposed.get(2));
-
-        // Create buffers
-        r = rgbTransposed.get(0).createBuffer();
-        g = rgbTransposed.get(1).createBuffer();
-        b = rgbTransposed.get(2).createBuffer();
-
-        // Cleanup
-        mat.release();
     }
 
     // Vectors will be released automatically by the garbage collector
-    final MatVector bgr = new MatVector(3);
-    final MatVector rgbTransposed = new MatVector(3);
-
-    final ByteBuffer r;
-    final ByteBuffer g;
-    final ByteBuffer b;
+    final MatPlanes planes = new MatPlanes(3);
+    final MatViews sourceViews = new MatViews();
+    final MatViews destinationViews = new MatViews();
 
     final int width;
     final int height;
 
-    final OpenCVFrameConverter<Mat> matConverter = new OpenCVFrameConverter.ToMat();
-
 }
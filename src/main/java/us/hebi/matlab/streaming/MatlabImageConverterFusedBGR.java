@@ -0,0 +1,50 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts interleaved BGR color images to MATLAB's planar column-major RGB format in
+ * a single pass. Rather than splitting into channels and transposing each one separately,
+ * it reads the pixels of the frame directly and writes them straight into the destination
+ * buffer. See {@link ColumnTransposer}.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverterFusedBGR implements MatlabImageConverter {
+
+    @Override
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
+        checkNotNull(source);
+        checkNotNull(destination);
+
+        if (source.imageHeight != height || source.imageWidth != width || source.imageChannels != 3
+                || Math.abs(source.imageDepth) != Frame.DEPTH_UBYTE || !(source.image[0] instanceof ByteBuffer)) {
+            System.err.println("Unexpected image dimensions. Skipping frame.");
+            return false;
+        }
+
+        // Use a view of the source so that we don't modify the position of the frame's buffer
+        int planeOffset = destination.position();
+        transposer.transpose(sourceViews.get((ByteBuffer) source.image[0]), source.imageStride, destination, planeOffset, 0, width);
+        destination.position(planeOffset + 3 * width * height);
+        return true;
+
+    }
+
+    MatlabImageConverterFusedBGR(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.transposer = new ColumnTransposer(width, height, 3, width);
+    }
+
+    final int width;
+    final int height;
+    final ColumnTransposer transposer;
+    final BufferViews sourceViews = new BufferViews();
+
+}
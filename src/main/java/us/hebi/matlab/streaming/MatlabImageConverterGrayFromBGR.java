@@ -0,0 +1,52 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static org.bytedeco.javacpp.opencv_imgproc.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts BGR color images to a MATLAB readable column-major grayscale format. Uses
+ * the ITU-R BT.601 weights, which match MATLAB's rgb2gray within rounding.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverterGrayFromBGR implements MatlabImageConverter {
+
+    @Override
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
+        checkNotNull(source);
+        checkNotNull(destination);
+
+        Mat mat = sourceViews.get(source); // Reuses the same Mat for each source buffer
+        if (mat == null || mat.rows() != height || mat.cols() != width || mat.channels() != 3 || mat.depth() != CV_8U) {
+            System.err.println("Unexpected image dimensions. Skipping frame.");
+            return false;
+        }
+
+        // Reduce to a single channel before transposing, so that only a third of the data gets reshaped
+        int offset = destination.position();
+        cvtColor(mat, gray, COLOR_BGR2GRAY);
+        transpose(gray, destinationViews.get(destination, offset, width, height, CV_8U));
+        destination.position(offset + width * height);
+        return true;
+
+    }
+
+    MatlabImageConverterGrayFromBGR(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    final int width;
+    final int height;
+
+    final Mat gray = new Mat();
+    final MatViews sourceViews = new MatViews();
+    final MatViews destinationViews = new MatViews();
+
+}
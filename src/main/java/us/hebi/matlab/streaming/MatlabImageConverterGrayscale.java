@@ -1,7 +1,6 @@
 package us.hebi.matlab.streaming;
 
 import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.OpenCVFrameConverter;
 
 import java.nio.ByteBuffer;
 
@@ -17,42 +16,34 @@ import static us.hebi.matlab.streaming.Preconditions.*;
 class MatlabImageConverterGrayscale implements MatlabImageConverter {
 
     @Override
-    public void writeFrameToBuffer(Frame source, ByteBuffer destination) {
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
         checkNotNull(source);
         checkNotNull(destination);
 
         // Convert to OpenCV format and use OpenCV to reshape memory
-        Mat mat = matConverter.convertToMat(source); // Internally reuses the same Mat
+        Mat mat = sourceViews.get(source); // Reuses the same Mat for each source buffer
         if (mat == null || mat.rows() != height || mat.cols() != width || mat.channels() != 1) {
             System.err.println("Unexpected image dimensions. Skipping frame.");
-            return;
+            return false;
         }
 
-        // Transpose to column-major format and write to destination buffer
-        transpose(mat, transposed);
-        buffer.position(0);
-        destination.put(buffer);
+        // Transpose to column-major format directly into the destination buffer
+        int offset = destination.position();
+        transpose(mat, destinationViews.get(destination, offset, width, height, CV_8U));
+        destination.position(offset + width * height);
+        return true;
 
     }
 
     MatlabImageConverterGrayscale(int width, int height) {
-        // Initialize all pointers with dummy data
         this.width = width;
         this.height = height;
-
-        Mat mat = new Mat(height, width, CV_8U);
-        transpose(mat, transposed);
-        buffer = transposed.createBuffer();
-        mat.release();
-
     }
 
     final int width;
     final int height;
 
-    final Mat transposed = new Mat();
-    final ByteBuffer buffer;
-
-    final OpenCVFrameConverter<Mat> matConverter = new OpenCVFrameConverter.ToMat();
+    final MatViews sourceViews = new MatViews();
+    final MatViews destinationViews = new MatViews();
 
 }
@@ -0,0 +1,60 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts single channel images to a MATLAB readable column-major uint16 format, e.g., for
+ * depth cameras. 16 bit images get copied as is. 8 bit images get scaled to the full 16 bit
+ * range, i.e., the same as MATLAB's im2uint16.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverterMono16 implements MatlabImageConverter {
+
+    @Override
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
+        checkNotNull(source);
+        checkNotNull(destination);
+
+        Mat mat = sourceViews.get(source); // Reuses the same Mat for each source buffer
+        if (mat == null || mat.rows() != height || mat.cols() != width || mat.channels() != 1) {
+            System.err.println("Unexpected image dimensions. Skipping frame.");
+            return false;
+        }
+
+        // Transposing requires matching types, or OpenCV would silently allocate new memory
+        // rather than writing into the destination. Signed data keeps its bit pattern.
+        if (mat.depth() == CV_8U) {
+            mat.convertTo(scaled, CV_16U, 257, 0);
+            mat = scaled;
+        } else if (mat.depth() != CV_16U && mat.depth() != CV_16S) {
+            System.err.println("Unexpected image depth. Skipping frame.");
+            return false;
+        }
+
+        int offset = destination.position();
+        transpose(mat, destinationViews.get(destination, offset, width, height, mat.type()));
+        destination.position(offset + width * height * 2);
+        return true;
+
+    }
+
+    MatlabImageConverterMono16(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    final int width;
+    final int height;
+
+    final Mat scaled = new Mat();
+    final MatViews sourceViews = new MatViews();
+    final MatViews destinationViews = new MatViews();
+
+}
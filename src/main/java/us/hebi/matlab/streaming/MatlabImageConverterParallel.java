@@ -0,0 +1,168 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts grayscale or BGR color images to a MATLAB readable column-major format by
+ * splitting the frame into column tiles that get converted concurrently. The calling
+ * thread converts the first tile itself and uses a thread pool for the remaining ones.
+ * The pool has one thread per core and is shared by all converters, so multiple cameras
+ * don't oversubscribe the machine.
+ * <p>
+ * The result is byte-identical to the serial converters.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverterParallel implements MatlabImageConverter {
+
+    @Override
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
+        checkNotNull(source);
+        checkNotNull(destination);
+
+        if (source.imageHeight != height || source.imageWidth != width || source.imageChannels != channels
+                || Math.abs(source.imageDepth) != Frame.DEPTH_UBYTE || !(source.image[0] instanceof ByteBuffer)) {
+            System.err.println("Unexpected image dimensions. Skipping frame.");
+            return false;
+        }
+
+        // Hand the frame to the tiles. Submitting to the executor makes the fields visible to the workers.
+        this.source = (ByteBuffer) source.image[0];
+        this.stride = source.imageStride;
+        this.destination = destination;
+        this.planeOffset = destination.position();
+        this.waiter = Thread.currentThread();
+        this.error = null;
+        remaining.set(tiles.length - 1);
+        for (int i = 1; i < tiles.length; i++) {
+            executor.execute(tiles[i]);
+        }
+
+        // Do some of the work on this thread and wait for the rest
+        try {
+            tiles[0].convert();
+        } finally {
+            while (remaining.get() > 0) {
+                LockSupport.park(this);
+            }
+        }
+
+        if (error != null)
+            throw new IllegalStateException("Failed to convert frame", error);
+        destination.position(planeOffset + channels * width * height);
+        return true;
+
+    }
+
+    private class Tile implements Runnable {
+
+        Tile(int col, int cols) {
+            this.col = col;
+            this.cols = cols;
+            this.transposer = new ColumnTransposer(width, height, channels, cols);
+        }
+
+        void convert() {
+            transposer.transpose(sourceViews.get(source), stride, destinationViews.get(destination), planeOffset, col, cols);
+        }
+
+        @Override
+        public void run() {
+            try {
+                convert();
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                if (remaining.decrementAndGet() == 0)
+                    LockSupport.unpark(waiter);
+            }
+        }
+
+        final int col;
+        final int cols;
+        final ColumnTransposer transposer;
+        final BufferViews sourceViews = new BufferViews();
+        final BufferViews destinationViews = new BufferViews();
+
+    }
+
+    MatlabImageConverterParallel(int width, int height, int channels) {
+        this(width, height, channels, getSharedExecutor(), Runtime.getRuntime().availableProcessors());
+    }
+
+    MatlabImageConverterParallel(int width, int height, int channels, Executor executor, int numTiles) {
+        checkArgument(width > 0 && height > 0, "Image dimensions must be positive");
+        checkArgument(channels == 1 || channels == 3, "Unsupported number of channels: " + channels);
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+        this.executor = checkNotNull(executor);
+
+        // Don't split into tiles that are too narrow to be worth the overhead
+        numTiles = Math.max(1, Math.min(numTiles, width / MIN_TILE_COLUMNS));
+        tiles = new Tile[numTiles];
+        for (int i = 0; i < numTiles; i++) {
+            int col = i * width / numTiles;
+            int nextCol = (i + 1) * width / numTiles;
+            tiles[i] = new Tile(col, nextCol - col);
+        }
+    }
+
+    static Executor getSharedExecutor() {
+        return SharedExecutorHolder.EXECUTOR;
+    }
+
+    /**
+     * Lazily creates the pool on first use. The bounded queue is backed by an array, so
+     * handing tiles to the workers doesn't allocate linked nodes for every frame. Tiles
+     * that don't fit run on the calling thread.
+     */
+    private static class SharedExecutorHolder {
+        private static final AtomicInteger threadCounter = new AtomicInteger(0);
+        private static final int numThreads = Runtime.getRuntime().availableProcessors();
+        static final ExecutorService EXECUTOR = new ThreadPoolExecutor(
+                numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(1024),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        thread.setName("MatlabImageConverter-" + threadCounter.getAndIncrement());
+                        return thread;
+                    }
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    static final int MIN_TILE_COLUMNS = 64;
+
+    final int width;
+    final int height;
+    final int channels;
+    final Executor executor;
+    final Tile[] tiles;
+
+    // Per-frame state that gets shared with the tiles
+    private final AtomicInteger remaining = new AtomicInteger(0);
+    private volatile Throwable error = null;
+    private ByteBuffer source;
+    private int stride;
+    private ByteBuffer destination;
+    private int planeOffset;
+    private Thread waiter;
+
+}
@@ -0,0 +1,40 @@
+package us.hebi.matlab.streaming;
+
+/**
+ * Service provider interface for output formats, i.e., the layout and type of the data that
+ * MATLAB receives. Formats get selected by name when creating a {@link BackgroundFrameGrabber}.
+ * Additional formats can be registered by listing implementations in a resource file named
+ * META-INF/services/us.hebi.matlab.streaming.MatlabImageConverterProvider.
+ * <p>
+ * Converters write one column-major plane per output channel, i.e., MATLAB can
+ * reshape the data to [height x width x channels] of the given class.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public interface MatlabImageConverterProvider {
+
+    /**
+     * @return unique name that users select the format by, e.g., "rgb8"
+     */
+    public String getName();
+
+    /**
+     * @return MATLAB class of the output samples, i.e., "uint8", "uint16", or "single"
+     */
+    public String getMatlabClass();
+
+    /**
+     * @param inputChannels channels of the frames provided by the grabber
+     * @param inputDepth    depth of the frames provided by the grabber, e.g., Frame.DEPTH_UBYTE
+     * @return number of output channels, or zero if frames of this type are not supported
+     */
+    public int getOutputChannels(int inputChannels, int inputDepth);
+
+    /**
+     * @param parallel true if the user prefers a converter that uses multiple cores. May be ignored.
+     * @return new converter for frames of the given dimensions
+     */
+    public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel);
+
+}
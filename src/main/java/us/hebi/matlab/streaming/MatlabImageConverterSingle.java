@@ -0,0 +1,65 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts 8 bit BGR or grayscale images to MATLAB's column-major format with single
+ * precision samples that are normalized to [0, 1], i.e., the same as MATLAB's im2single.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverterSingle implements MatlabImageConverter {
+
+    @Override
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
+        checkNotNull(source);
+        checkNotNull(destination);
+
+        Mat mat = sourceViews.get(source); // Reuses the same Mat for each source buffer
+        if (mat == null || mat.rows() != height || mat.cols() != width || mat.channels() != channels || mat.depth() != CV_8U) {
+            System.err.println("Unexpected image dimensions. Skipping frame.");
+            return false;
+        }
+
+        // Scale all channels at once, then transpose each channel directly into the destination.
+        // Color planes are in RGB order.
+        int offset = destination.position();
+        int planeBytes = width * height * 4;
+        mat.convertTo(normalized, CV_32F, 1.0 / 255, 0);
+        if (channels == 1) {
+            transpose(normalized, destinationViews.get(destination, offset, width, height, CV_32F));
+        } else {
+            Mat[] bgr = planes.split(normalized);
+            transpose(bgr[2], destinationViews.get(destination, offset, width, height, CV_32F));
+            transpose(bgr[1], destinationViews.get(destination, offset + planeBytes, width, height, CV_32F));
+            transpose(bgr[0], destinationViews.get(destination, offset + 2 * planeBytes, width, height, CV_32F));
+        }
+        destination.position(offset + channels * planeBytes);
+        return true;
+
+    }
+
+    MatlabImageConverterSingle(int width, int height, int channels) {
+        checkArgument(channels == 1 || channels == 3, "Unsupported number of channels: " + channels);
+        this.width = width;
+        this.height = height;
+        this.channels = channels;
+    }
+
+    final int width;
+    final int height;
+    final int channels;
+
+    // Vectors will be released automatically by the garbage collector
+    final Mat normalized = new Mat();
+    final MatPlanes planes = new MatPlanes(3);
+    final MatViews sourceViews = new MatViews();
+    final MatViews destinationViews = new MatViews();
+
+}
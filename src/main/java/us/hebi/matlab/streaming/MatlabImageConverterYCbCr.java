@@ -0,0 +1,70 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacpp.DoublePointer;
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Converts BGR color images to MATLAB's planar column-major format with Y, Cb, and Cr
+ * planes. Uses the same ITU-R BT.601 studio range as MATLAB's rgb2ycbcr, i.e., Y is
+ * within [16, 235] and Cb/Cr are within [16, 240]. Note that OpenCV's own YCrCb
+ * conversion uses the full range and a different channel order.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverterYCbCr implements MatlabImageConverter {
+
+    @Override
+    public boolean writeFrameToBuffer(Frame source, ByteBuffer destination) {
+        checkNotNull(source);
+        checkNotNull(destination);
+
+        Mat mat = sourceViews.get(source); // Reuses the same Mat for each source buffer
+        if (mat == null || mat.rows() != height || mat.cols() != width || mat.channels() != 3 || mat.depth() != CV_8U) {
+            System.err.println("Unexpected image dimensions. Skipping frame.");
+            return false;
+        }
+
+        // Apply the color matrix with rounding and saturation, then
+        // transpose each channel directly into the destination
+        int offset = destination.position();
+        int planeBytes = width * height;
+        transform(mat, ycbcr, coefficients);
+        Mat[] channels = planes.split(ycbcr);
+        transpose(channels[0], destinationViews.get(destination, offset, width, height, CV_8U));
+        transpose(channels[1], destinationViews.get(destination, offset + planeBytes, width, height, CV_8U));
+        transpose(channels[2], destinationViews.get(destination, offset + 2 * planeBytes, width, height, CV_8U));
+        destination.position(offset + 3 * planeBytes);
+        return true;
+
+    }
+
+    MatlabImageConverterYCbCr(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    final int width;
+    final int height;
+
+    /**
+     * Rows map [B G R 1] to Y, Cb, and Cr
+     */
+    private final DoublePointer coefficientData = new DoublePointer(
+            24.966 / 255, 128.553 / 255, 65.481 / 255, 16,
+            112.0 / 255, -74.203 / 255, -37.797 / 255, 128,
+            -18.214 / 255, -93.786 / 255, 112.0 / 255, 128);
+    private final Mat coefficients = new Mat(3, 4, CV_64F, coefficientData);
+
+    // Vectors will be released automatically by the garbage collector
+    final Mat ycbcr = new Mat();
+    final MatPlanes planes = new MatPlanes(3);
+    final MatViews sourceViews = new MatViews();
+    final MatViews destinationViews = new MatViews();
+
+}
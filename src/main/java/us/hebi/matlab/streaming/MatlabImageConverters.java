@@ -0,0 +1,83 @@
+package us.hebi.matlab.streaming;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Registry of the available output formats. Contains the {@link StandardOutputFormat}s as well as
+ * any {@link MatlabImageConverterProvider} that can be found by the {@link ServiceLoader}.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class MatlabImageConverters {
+
+    /**
+     * @param name case insensitive name of the format
+     * @return provider of the format
+     * @throws IllegalArgumentException if there is no format with the given name
+     */
+    static MatlabImageConverterProvider get(String name) {
+        checkNotNull(name, "Output format can't be empty");
+        for (MatlabImageConverterProvider provider : getProviders()) {
+            if (provider.getName().equalsIgnoreCase(name))
+                return provider;
+        }
+        throw new IllegalArgumentException("Unknown output format '" + name + "'. Available formats: " + getNames());
+    }
+
+    static List<String> getNames() {
+        List<String> names = new ArrayList<String>();
+        for (MatlabImageConverterProvider provider : getProviders()) {
+            names.add(provider.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Service providers get loaded on first use with the class loader of this package, which
+     * is not necessarily the context class loader when running inside MATLAB.
+     */
+    static synchronized List<MatlabImageConverterProvider> getProviders() {
+        if (providers == null) {
+            List<MatlabImageConverterProvider> list = new ArrayList<MatlabImageConverterProvider>();
+            Collections.addAll(list, StandardOutputFormat.values());
+            try {
+                for (MatlabImageConverterProvider provider : ServiceLoader.load(
+                        MatlabImageConverterProvider.class, MatlabImageConverterProvider.class.getClassLoader())) {
+                    list.add(provider);
+                }
+            } catch (ServiceConfigurationError error) {
+                System.err.println("Failed to load output formats: " + error.getMessage());
+            }
+            providers = Collections.unmodifiableList(list);
+        }
+        return providers;
+    }
+
+    /**
+     * @return number of bytes of a single sample of the given MATLAB class
+     */
+    static int getBytesPerSample(String matlabClass) {
+        if ("uint8".equals(matlabClass) || "int8".equals(matlabClass))
+            return 1;
+        if ("uint16".equals(matlabClass) || "int16".equals(matlabClass))
+            return 2;
+        if ("single".equals(matlabClass) || "uint32".equals(matlabClass) || "int32".equals(matlabClass))
+            return 4;
+        if ("double".equals(matlabClass) || "uint64".equals(matlabClass) || "int64".equals(matlabClass))
+            return 8;
+        throw new IllegalArgumentException("Unsupported MATLAB class: " + matlabClass);
+    }
+
+    private static List<MatlabImageConverterProvider> providers = null;
+
+    private MatlabImageConverters() {
+    }
+
+}
@@ -0,0 +1,447 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static us.hebi.matlab.streaming.BackgroundFrameGrabber.*;
+import static us.hebi.matlab.streaming.Preconditions.*;
+import static us.hebi.matlab.streaming.Resources.*;
+
+/**
+ * Acquires frames from multiple cameras and publishes sets of frames that were captured
+ * at roughly the same time, e.g., for stereo vision. Each camera gets converted on its
+ * own thread into one of a few staging buffers. Whenever a camera delivers a new frame,
+ * a matcher looks for the most recent combination of frames whose arrival times lie
+ * within the tolerance, and copies the set into a single shared memory slot. Readers
+ * get the entire set with one lock and one copy.
+ * <p>
+ * Frames get matched by the time they arrived on the host rather than by the timestamps
+ * of the streams, because the latter don't share a common time base across devices.
+ * <p>
+ * The shared memory header only contains [int64 latestSlot][uint64 sequence[numSlots]], i.e.,
+ * the index of the most recent set (-1 before the first one) and the seqlock sequence number
+ * of each slot. Unlike {@link BackgroundFrameGrabber}, there is no format description or
+ * generation, because the dimensions of each camera are fixed and available via the getters.
+ * Slots start at {@link #getHeaderBytes()}. Each slot contains [uint64 setNumber][double skew],
+ * followed by [uint64 frame][double timestamp][pixels] for each camera. The skew is the time
+ * between the first and the last frame in [s].
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class MultiCameraFrameGrabber {
+
+    public MultiCameraFrameGrabber(FrameGrabber[] grabbers, double toleranceSeconds) throws FrameGrabber.Exception {
+        this(grabbers, toleranceSeconds, DEFAULT_NUM_SLOTS);
+    }
+
+    /**
+     * @param grabbers         sources of the frames. Resolutions and channels may differ.
+     * @param toleranceSeconds max time between the arrival of the first and last frame of a set
+     * @param numSlots         number of frame sets that fit into shared memory
+     */
+    public MultiCameraFrameGrabber(FrameGrabber[] grabbers, double toleranceSeconds, int numSlots) throws FrameGrabber.Exception {
+        this(grabbers, toleranceSeconds, numSlots, BackingStore.getDefault());
+    }
+
+    /**
+     * @param store file system that backs the shared memory, e.g., tmpfs or huge pages
+     */
+    public MultiCameraFrameGrabber(FrameGrabber[] grabbers, double toleranceSeconds, int numSlots, BackingStore store) throws FrameGrabber.Exception {
+        checkNotNull(grabbers, "FrameGrabbers can't be empty");
+        checkArgument(grabbers.length > 0, "Requires at least one FrameGrabber");
+        checkArgument(toleranceSeconds >= 0, "Tolerance can't be negative");
+        this.toleranceNanos = (long) (toleranceSeconds * 1E9);
+        this.slotRing = new SlotRing(numSlots);
+
+        // Grab first frames to initialize converters and shared memory with correct dimensions. All
+        // cameras connect concurrently, so slow sources don't add up.
+        Frame[] firstFrames = GrabberStarter.startAll(grabbers);
+        cameras = new Camera[grabbers.length];
+        int slotBytes = SET_HEADER_BYTES;
+        for (int i = 0; i < grabbers.length; i++) {
+            cameras[i] = new Camera(i, grabbers[i], firstFrames[i], slotBytes);
+            slotBytes += cameras[i].getSectionBytes();
+        }
+        matched = new Candidate[cameras.length];
+
+        int headerBytes = SEQUENCE_OFFSET + numSlots * 8;
+        sharedMemory = SharedMemory.allocate(headerBytes, slotBytes, numSlots, store);
+        sharedMemory.clearHeaderBuffer().putLong(LATEST_SLOT_OFFSET, -1);
+        this.grabberTimeoutMs = cameras[0].grabber.getTimeout();
+
+    }
+
+    public int getNumCameras() {
+        return cameras.length;
+    }
+
+    public int getHeight(int camera) {
+        return cameras[camera].height;
+    }
+
+    public int getWidth(int camera) {
+        return cameras[camera].width;
+    }
+
+    public int getChannels(int camera) {
+        return cameras[camera].channels;
+    }
+
+    public String getBackingFile() {
+        return sharedMemory.getBackingFile().getPath();
+    }
+
+    public int getNumSlots() {
+        return sharedMemory.getNumSlots();
+    }
+
+    public int getHeaderBytes() {
+        return sharedMemory.getHeaderBytes();
+    }
+
+    /**
+     * @return number of sets that have been published to shared memory
+     */
+    public long getPublishedSets() {
+        return slotRing.getPublishCount();
+    }
+
+    /**
+     * Waits for a new set of frames and locks the slot that contains it. The slot stays
+     * valid until the lock gets released or the next lock is requested.
+     *
+     * @return zero based index of the locked slot, or -1 if no new set arrived before the timeout
+     */
+    public int tryGetNextImageSlot() {
+        if (!active || error != null) {
+            tryReleaseImageLock();
+            return -1;
+        }
+        try {
+            return slotRing.acquireNextReadSlot(grabberTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * @return zero based index of the slot that is currently locked by the user, or -1 if there is none
+     */
+    public int getImageSlot() {
+        return slotRing.getReadSlot();
+    }
+
+    public void tryReleaseImageLock() {
+        slotRing.releaseReadSlot();
+    }
+
+    /**
+     * @return the error that stopped one of the cameras or the publisher, or null if all of them are
+     * still running. The message names the one based index of the camera that failed.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Stops publishing sets, because a set can't be complete once a camera is gone. Wakes
+     * up the publisher so that it doesn't keep waiting for frames.
+     */
+    private void fail(String source, Throwable cause) {
+        synchronized (lock) {
+            if (error == null && active) {
+                error = new FrameGrabber.Exception(source + " failed: " + cause.getMessage(), cause);
+                System.err.println(error.getMessage());
+            }
+            lock.notifyAll();
+        }
+    }
+
+    public void start() {
+        checkState(active, "MultiCameraFrameGrabber must not have been stopped yet");
+        String name = "MultiCamera-" + threadCounter.getAndIncrement();
+        for (int i = 0; i < cameras.length; i++) {
+            startDaemon(cameras[i], name + "-" + i);
+        }
+        startDaemon(publisher, name + "-publisher");
+    }
+
+    private static void startDaemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        thread.setName(name);
+        thread.start();
+    }
+
+    public void stop() throws FrameGrabber.Exception {
+        if (!active) return;
+        active = false;
+
+        // Wake up the matcher and wait for it to finish writing
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        try {
+            slotRing.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        closeSilently(sharedMemory);
+        for (Camera camera : cameras) {
+            synchronized (camera.grabber) {
+                camera.grabber.stop();
+            }
+        }
+    }
+
+    /**
+     * Looks for the most recent combination of unpublished frames whose arrival times are
+     * within the tolerance. The reference is the latest frame of the camera that lags
+     * behind the most, and every camera contributes the frame that is closest to it.
+     *
+     * @return true if a set has been stored in 'matched'
+     */
+    private boolean findMatch() {
+        long reference = Long.MAX_VALUE;
+        for (Camera camera : cameras) {
+            Candidate newest = null;
+            for (Candidate candidate : camera.candidates) {
+                if (camera.isEligible(candidate) && (newest == null || candidate.arrivalNanos > newest.arrivalNanos))
+                    newest = candidate;
+            }
+            if (newest == null)
+                return false;
+            reference = Math.min(reference, newest.arrivalNanos);
+        }
+
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < cameras.length; i++) {
+            Candidate closest = null;
+            for (Candidate candidate : cameras[i].candidates) {
+                if (cameras[i].isEligible(candidate) && (closest == null
+                        || Math.abs(candidate.arrivalNanos - reference) < Math.abs(closest.arrivalNanos - reference)))
+                    closest = candidate;
+            }
+            matched[i] = closest;
+            first = Math.min(first, closest.arrivalNanos);
+            last = Math.max(last, closest.arrivalNanos);
+        }
+        return last - first <= toleranceNanos;
+    }
+
+    private void runPublishLoop() throws InterruptedException {
+        while (active) {
+
+            // Wait for a matching set and keep the cameras from overwriting it
+            long skewNanos;
+            synchronized (lock) {
+                while (active && error == null && !findMatch()) {
+                    lock.wait();
+                }
+                if (!active || error != null)
+                    return;
+                long first = Long.MAX_VALUE;
+                long last = Long.MIN_VALUE;
+                for (Candidate candidate : matched) {
+                    candidate.pinned = true;
+                    first = Math.min(first, candidate.arrivalNanos);
+                    last = Math.max(last, candidate.arrivalNanos);
+                }
+                skewNanos = last - first;
+            }
+
+            // Copy the set into a free slot. Readers that don't release their lock
+            // can only delay the set, so we give up after a reasonable time.
+            int slot = slotRing.acquireWriteSlot(1000);
+            if (slot >= 0) {
+                long sequence = 2 * (slotRing.getPublishCount() + 1);
+                ByteBuffer header = sharedMemory.clearHeaderBuffer();
+                header.putLong(SEQUENCE_OFFSET + slot * 8, sequence - 1);
+                Resources.storeFence();
+
+                ByteBuffer buffer = sharedMemory.clearSlotBuffer(slot);
+                buffer.putLong(sequence / 2);
+                buffer.putDouble(skewNanos * 1E-9);
+                for (int i = 0; i < cameras.length; i++) {
+                    Candidate candidate = matched[i];
+                    buffer.position(cameras[i].offset);
+                    buffer.putLong(candidate.frameNumber);
+                    buffer.putDouble(candidate.timestamp);
+                    candidate.pixels.clear();
+                    buffer.put(candidate.pixels);
+                }
+
+                Resources.storeFence();
+                header.putLong(SEQUENCE_OFFSET + slot * 8, sequence);
+                header.putLong(LATEST_SLOT_OFFSET, slot);
+                slotRing.publish();
+            }
+
+            // Only newer frames may be part of the next set
+            synchronized (lock) {
+                for (int i = 0; i < cameras.length; i++) {
+                    matched[i].pinned = false;
+                    cameras[i].lastPublishedNanos = matched[i].arrivalNanos;
+                }
+            }
+
+        }
+    }
+
+    private static class Candidate {
+
+        Candidate(int numBytes) {
+            pixels = ByteBuffer.allocateDirect(numBytes);
+        }
+
+        final ByteBuffer pixels;
+        long frameNumber;
+        double timestamp;
+        long arrivalNanos;
+        boolean valid = false;
+        boolean writing = false;
+        boolean pinned = false;
+
+    }
+
+    private class Camera implements Runnable {
+
+        Camera(int index, FrameGrabber grabber, Frame frame, int offset) {
+            this.index = index;
+            this.grabber = grabber;
+            this.offset = offset;
+            width = frame.imageWidth;
+            height = frame.imageHeight;
+            channels = frame.imageChannels;
+            converter = createConverter(width, height, channels, false);
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = new Candidate(width * height * channels);
+            }
+        }
+
+        int getSectionBytes() {
+            return FRAME_HEADER_BYTES + width * height * channels;
+        }
+
+        boolean isEligible(Candidate candidate) {
+            return candidate.valid && !candidate.writing && candidate.arrivalNanos > lastPublishedNanos;
+        }
+
+        /**
+         * @return the oldest buffer that is not part of the set that is being published
+         */
+        Candidate acquireCandidate() {
+            Candidate oldest = null;
+            for (Candidate candidate : candidates) {
+                if (candidate.pinned)
+                    continue;
+                if (oldest == null || !candidate.valid || (oldest.valid && candidate.arrivalNanos < oldest.arrivalNanos))
+                    oldest = candidate;
+                if (!oldest.valid)
+                    break;
+            }
+            oldest.valid = false;
+            oldest.writing = true;
+            return oldest;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (active) {
+
+                    // Read next image from device
+                    Frame frame;
+                    long frameNumber;
+                    double timestamp;
+                    synchronized (grabber) {
+                        frame = grabber.grabFrame();
+                        frameNumber = grabber.getFrameNumber();
+                        timestamp = grabber.getTimestamp() * 1E-6; // [us] to [s]
+                    }
+                    long arrivalNanos = System.nanoTime();
+
+                    if (frame == null) {
+                        Thread.sleep(100);
+                        continue;
+                    }
+
+                    // Convert outside of the lock so that cameras don't block each other
+                    Candidate candidate;
+                    synchronized (lock) {
+                        candidate = acquireCandidate();
+                    }
+                    candidate.pixels.clear();
+                    boolean converted = converter.writeFrameToBuffer(frame, candidate.pixels);
+
+                    synchronized (lock) {
+                        candidate.writing = false;
+                        candidate.valid = converted;
+                        candidate.frameNumber = frameNumber;
+                        candidate.timestamp = timestamp;
+                        candidate.arrivalNanos = arrivalNanos;
+                        lock.notifyAll();
+                    }
+
+                }
+            } catch (Throwable t) {
+                fail("Camera " + (index + 1), t);
+            }
+        }
+
+        final int index;
+        final FrameGrabber grabber;
+        final int offset;
+        final int width;
+        final int height;
+        final int channels;
+        final MatlabImageConverter converter;
+        final Candidate[] candidates = new Candidate[CANDIDATES_PER_CAMERA];
+        long lastPublishedNanos = Long.MIN_VALUE;
+
+    }
+
+    private final Runnable publisher = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                runPublishLoop();
+            } catch (Throwable t) {
+                fail("Publisher", t);
+            }
+        }
+    };
+
+    // Setup
+    final Camera[] cameras;
+    final SharedMemory sharedMemory;
+    final SlotRing slotRing;
+    private final long toleranceNanos;
+    private final long grabberTimeoutMs;
+    private static final int SET_HEADER_BYTES = 16; // 8 [set#] + 8 [skew]
+    private static final int FRAME_HEADER_BYTES = 16; // 8 [frame#] + 8 [timestamp]
+    private static final int DEFAULT_NUM_SLOTS = 3;
+
+    /**
+     * One buffer may be pinned by the publisher and one may be written, so the
+     * remaining ones let the matcher look at a short history of recent frames.
+     */
+    private static final int CANDIDATES_PER_CAMERA = 4;
+
+    // State that is guarded by the lock
+    private final Object lock = new Object();
+    private final Candidate[] matched;
+
+    volatile boolean active = true;
+    private volatile Throwable error = null;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+}
@@ -0,0 +1,216 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacpp.*;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Loads the native libraries of a single grabber backend rather than everything that is bundled
+ * in the jar. A USB camera doesn't need FFmpeg, and a network stream doesn't need OpenCV's video
+ * I/O. The libraries that the converters use get loaded for every backend.
+ * <p>
+ * Loading can be started early on a background thread, e.g., while MATLAB checks whether a camera
+ * is reachable, so that the first camera doesn't have to wait for it. Every backend gets loaded at
+ * most once, failed loads get retried, and the time spent loading each library gets recorded.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class NativeLoader {
+
+    public enum Backend {
+
+        /**
+         * Network streams and video files
+         */
+        FFMPEG(avutil.class, swresample.class, avcodec.class, avformat.class, swscale.class, avdevice.class),
+
+        /**
+         * Numbered devices and device paths
+         */
+        OPENCV(opencv_imgcodecs.class, opencv_videoio.class, opencv_highgui.class);
+
+        Backend(Class<?>... libraries) {
+            this.libraries = libraries;
+        }
+
+        private final Class<?>[] libraries;
+
+    }
+
+    /**
+     * @return backend of the grabber that {@link GrabberFactory} creates for the location
+     */
+    public static Backend getBackend(DeviceLocation location) {
+        checkNotNull(location, "Device location can't be empty");
+        if (location.isNumber())
+            return Backend.OPENCV;
+        if (location.isUrl() || new File(location.getPath()).isFile())
+            return Backend.FFMPEG; // http://<ip>/mjpeg/, rtsp://..., or local video files
+        return Backend.OPENCV; // e.g. /dev/video0
+    }
+
+    /**
+     * Starts loading the libraries that are needed to open the location. Returns immediately.
+     */
+    public static Future<?> preload(DeviceLocation location) {
+        return preload(getBackend(location));
+    }
+
+    /**
+     * Starts loading the libraries of the backend on a background thread. Returns immediately,
+     * and later calls return the same future. Failed loads get retried on the next call.
+     *
+     * @return future that fails if a library could not be loaded
+     */
+    public static Future<?> preload(Backend backend) {
+        checkNotNull(backend, "Backend can't be empty");
+        return preload(backend, new LoadTask(backend));
+    }
+
+    /**
+     * @param key    identifies loads that should only run once, e.g., the backend
+     * @param loader loads the libraries. Only gets called if there is no pending or successful load.
+     */
+    static Future<?> preload(final Object key, Callable<Void> loader) {
+        FutureTask<Void> task = loads.get(key);
+        if (task != null)
+            return task;
+
+        // Forget failures, e.g., a temporary extraction problem, so that they don't
+        // break the backend for the rest of the session
+        FutureTask<Void> created = new FutureTask<Void>(loader) {
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (ExecutionException e) {
+                    loads.remove(key, this);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        task = loads.putIfAbsent(key, created);
+        if (task != null)
+            return task;
+
+        Thread thread = new Thread(created);
+        thread.setDaemon(true);
+        thread.setName("NativeLoader-" + String.valueOf(key).toLowerCase(Locale.US));
+        thread.start();
+        return created;
+    }
+
+    /**
+     * Loads the libraries of the backend and blocks until they are available
+     */
+    public static void load(Backend backend) throws FrameGrabber.Exception {
+        try {
+            preload(backend).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FrameGrabber.Exception("Interrupted while loading " + backend, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FrameGrabber.Exception)
+                throw (FrameGrabber.Exception) e.getCause();
+            throw new FrameGrabber.Exception("Failed to load " + backend, e.getCause());
+        }
+    }
+
+    /**
+     * Waits for a load that has already been started, so that the caller doesn't initialize the
+     * same libraries concurrently. Failures get ignored and show up once the grabber gets used.
+     */
+    static void awaitPreload(Backend backend) {
+        FutureTask<Void> task = loads.get(backend);
+        if (task == null)
+            return;
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Reported when the grabber gets started
+        }
+    }
+
+    /**
+     * @return time in milliseconds that it took to load each library, in the order they got loaded
+     */
+    public static Map<String, Double> getLoadTimesMs() {
+        synchronized (loadTimesMs) {
+            return new LinkedHashMap<String, Double>(loadTimesMs);
+        }
+    }
+
+    private static class LoadTask implements Callable<Void> {
+
+        LoadTask(Backend backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public Void call() throws FrameGrabber.Exception {
+            for (Class<?> library : CONVERTER_LIBRARIES) {
+                loadLibrary(library);
+            }
+            for (Class<?> library : backend.libraries) {
+                loadLibrary(library);
+            }
+
+            // Lets the grabbers finish their own setup, e.g., registering FFmpeg's codecs
+            long start = System.nanoTime();
+            switch (backend) {
+                case FFMPEG:
+                    FFmpegFrameGrabber.tryLoad();
+                    break;
+                case OPENCV:
+                    FixedOpenCVFrameGrabber.tryLoad();
+                    break;
+            }
+            recordLoadTime(backend.name().toLowerCase(Locale.US) + "-setup", System.nanoTime() - start);
+            return null;
+        }
+
+        private static void loadLibrary(Class<?> library) throws FrameGrabber.Exception {
+            String name = library.getSimpleName();
+            if (loadTimesMs.containsKey(name))
+                return;
+            long start = System.nanoTime();
+            try {
+                Loader.load(library);
+            } catch (Throwable t) {
+                throw new FrameGrabber.Exception("Failed to load " + name, t);
+            }
+            recordLoadTime(name, System.nanoTime() - start);
+        }
+
+        private static void recordLoadTime(String name, long nanos) {
+            synchronized (loadTimesMs) {
+                if (!loadTimesMs.containsKey(name))
+                    loadTimesMs.put(name, nanos / 1E6);
+            }
+        }
+
+        private final Backend backend;
+
+    }
+
+    private NativeLoader() {
+    }
+
+    private static final Class<?>[] CONVERTER_LIBRARIES = {opencv_core.class, opencv_imgproc.class};
+    private static final ConcurrentMap<Object, FutureTask<Void>> loads = new ConcurrentHashMap<Object, FutureTask<Void>>();
+    private static final Map<String, Double> loadTimesMs = Collections.synchronizedMap(new LinkedHashMap<String, Double>());
+
+}
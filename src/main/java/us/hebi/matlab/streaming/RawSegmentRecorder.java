@@ -0,0 +1,157 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+import static us.hebi.matlab.streaming.Resources.*;
+
+/**
+ * Records uncompressed frames into memory mapped segment files, which is much cheaper than
+ * encoding and keeps the original pixels. Each segment gets allocated for a fixed number of
+ * frames when it gets created, so writing a frame is a plain copy into mapped memory.
+ * <p>
+ * Segments are named [name]-[segment].raw and contain the frames back to back. Each frame
+ * is in the interleaved row-major layout of the grabber without row padding, e.g., BGR for
+ * color images, and 16 bit samples are in native byte order. The last segment gets truncated
+ * to the recorded frames. An index file named [name].csv lists the frame number, timestamp,
+ * segment, byte offset, and layout of every recorded frame.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class RawSegmentRecorder extends BackgroundRecorder {
+
+    @Override
+    protected void open(Frame frame) throws IOException {
+        width = frame.imageWidth;
+        height = frame.imageHeight;
+        channels = frame.imageChannels;
+        depth = frame.imageDepth;
+        bytesPerSample = frame.image[0] instanceof ShortBuffer ? 2 : 1;
+        rowSamples = width * channels;
+        frameBytes = rowSamples * height * bytesPerSample;
+        checkArgument((long) frameBytes * framesPerSegment <= Integer.MAX_VALUE, "Segments must be smaller than 2GB");
+
+        checkState(directory.isDirectory() || directory.mkdirs(), "Could not create directory " + directory);
+        index = new BufferedWriter(new FileWriter(new File(directory, name + ".csv")));
+        index.write("frame,timestamp,segment,offset,width,height,channels,depth");
+        index.newLine();
+    }
+
+    @Override
+    protected void write(Frame frame, long frameNumber, double timestamp) throws IOException {
+        if (frame.imageWidth != width || frame.imageHeight != height || frame.imageChannels != channels || frame.imageDepth != depth)
+            throw new IOException("Frame layout changed during the recording");
+        if (segment == null || framesInSegment == framesPerSegment)
+            nextSegment();
+
+        // Copy row by row to drop any padding at the end of the rows
+        int offset = framesInSegment * frameBytes;
+        if (frame.image[0] instanceof ByteBuffer) {
+            ByteBuffer source = sourceViews.get((ByteBuffer) frame.image[0]);
+            for (int row = 0; row < height; row++) {
+                int start = row * frame.imageStride;
+                source.limit(start + rowSamples).position(start);
+                segment.position(offset + row * rowSamples);
+                segment.put(source);
+            }
+        } else {
+            ShortBuffer source = ((ShortBuffer) frame.image[0]).duplicate();
+            for (int row = 0; row < height; row++) {
+                int start = row * frame.imageStride;
+                source.limit(start + rowSamples).position(start);
+                segmentShorts.position(offset / 2 + row * rowSamples);
+                segmentShorts.put(source);
+            }
+        }
+        framesInSegment++;
+
+        index.write(String.format(Locale.US, "%d,%.6f,%d,%d,%d,%d,%d,%d",
+                frameNumber, timestamp, segmentNumber, offset, width, height, channels, depth));
+        index.newLine();
+    }
+
+    @Override
+    protected void close() throws IOException {
+        try {
+            closeSegment();
+        } finally {
+            index.close();
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        closeSegment();
+        segmentNumber++;
+        segmentFile = new RandomAccessFile(new File(directory, String.format(Locale.US, "%s-%04d.raw", name, segmentNumber)), "rw");
+        segmentFile.setLength((long) frameBytes * framesPerSegment);
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) frameBytes * framesPerSegment);
+        segment.order(ByteOrder.nativeOrder());
+        segmentShorts = segment.asShortBuffer();
+        framesInSegment = 0;
+    }
+
+    /**
+     * Unmaps the current segment and truncates it to the frames that have been written. The
+     * index gets flushed as well, so that all completed segments are usable after a crash.
+     */
+    private void closeSegment() throws IOException {
+        if (segment == null)
+            return;
+        segment.force();
+        closeDirectBuffer(segment);
+        segment = null;
+        segmentShorts = null;
+        try {
+            segmentFile.setLength((long) frameBytes * framesInSegment);
+        } finally {
+            segmentFile.close();
+        }
+        index.flush();
+    }
+
+    /**
+     * @param directory        directory for the segment and index files. Gets created if necessary.
+     * @param name             common prefix of all files
+     * @param framesPerSegment number of frames per segment file
+     * @param queueCapacity    max number of frames that may wait to be written
+     */
+    public RawSegmentRecorder(File directory, String name, int framesPerSegment, int queueCapacity) {
+        super(queueCapacity);
+        checkArgument(framesPerSegment > 0, "Segments must hold at least one frame");
+        this.directory = checkNotNull(directory, "Directory can't be empty");
+        this.name = checkNotNull(name, "Name can't be empty");
+        this.framesPerSegment = framesPerSegment;
+    }
+
+    private final File directory;
+    private final String name;
+    private final int framesPerSegment;
+    private final BufferViews sourceViews = new BufferViews();
+
+    // Layout of the recorded frames
+    private int width;
+    private int height;
+    private int channels;
+    private int depth;
+    private int bytesPerSample;
+    private int rowSamples;
+    private int frameBytes;
+
+    // Current state
+    private BufferedWriter index;
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+    private ShortBuffer segmentShorts;
+    private int segmentNumber = -1;
+    private int framesInSegment = 0;
+
+}
@@ -24,6 +24,7 @@ package us.hebi.matlab.streaming;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -47,6 +48,50 @@ public class Resources {
         }
     }
 
+    /**
+     * Keeps stores before the fence from being reordered with stores after it, e.g., for
+     * seqlock writers that share memory with other processes. Uses Unsafe::storeFence on
+     * Java 8+. Java 6 and 7 have no fences, so the fallback is a volatile write, which only
+     * orders the stores on CPUs with total store order, e.g., x86. Uses plain reflection
+     * because MATLAB may still run on Java 6, which has no method handles.
+     */
+    static void storeFence() {
+        if (StoreFenceHolder.STORE_FENCE == null) {
+            fallbackFence = true;
+            return;
+        }
+        try {
+            StoreFenceHolder.STORE_FENCE.invoke(StoreFenceHolder.UNSAFE, NO_ARGS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static class StoreFenceHolder {
+        static final Object UNSAFE;
+        static final Method STORE_FENCE;
+
+        static {
+            Object unsafe = null;
+            Method storeFence = null;
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                unsafe = theUnsafe.get(null);
+                storeFence = unsafeClass.getMethod("storeFence");
+            } catch (Exception e) {
+                storeFence = null; // Java 6 and 7
+            }
+            UNSAFE = unsafe;
+            STORE_FENCE = storeFence;
+        }
+    }
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static volatile boolean fallbackFence = false;
+
     private Resources() {
 
     }
@@ -70,7 +115,16 @@ public class Resources {
             clean.setAccessible(true);
             clean.invoke(cleaner.invoke(cb));
         } catch (Exception ex) {
-            throw new AssertionError(ex);
+            // Java 9+ doesn't allow access to the cleaner, but provides Unsafe::invokeCleaner
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                invokeCleaner.invoke(theUnsafe.get(null), cb);
+            } catch (Exception ex9) {
+                throw new AssertionError(ex);
+            }
         }
     }
 
@@ -32,6 +32,7 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static us.hebi.matlab.streaming.Preconditions.*;
 import static us.hebi.matlab.streaming.Resources.*;
@@ -39,6 +40,10 @@ import static us.hebi.matlab.streaming.Resources.*;
 /**
  * Allocates memory that can be accessed from other processes. Instantiated objects are
  * not thread safe. The byte order of the backing buffer is the native order.
+ * <p>
+ * The memory may be split into an optional header followed by multiple equally sized
+ * slots that are laid out back to back, e.g., [header][slot0][slot1][slot2], so that a
+ * writer can fill one slot while other processes are still reading from another one.
  *
  * @author Florian Enner < florian @ hebirobotics.com >
  * @since 02 May 2015
@@ -46,11 +51,59 @@ import static us.hebi.matlab.streaming.Resources.*;
 public class SharedMemory implements Closeable {
 
     public static SharedMemory allocate(int numBytes) {
-        return new SharedMemory(numBytes);
+        return allocate(numBytes, 1);
     }
 
+    public static SharedMemory allocate(int slotBytes, int numSlots) {
+        return allocate(0, slotBytes, numSlots);
+    }
+
+    public static SharedMemory allocate(int headerBytes, int slotBytes, int numSlots) {
+        return allocate(headerBytes, slotBytes, numSlots, BackingStore.getDefault());
+    }
+
+    /**
+     * @param store file system of the backing file. Falls back to other stores if the
+     *              requested one is not available. See {@link #getBackingStore()}.
+     */
+    public static SharedMemory allocate(int headerBytes, int slotBytes, int numSlots, BackingStore store) {
+        return new SharedMemory(headerBytes, slotBytes, numSlots, checkNotNull(store, "Store can't be empty"));
+    }
+
+    /**
+     * @return view of the header and all slots. Excludes any padding that the store may have
+     * added to round the file up to full pages.
+     */
     public ByteBuffer clearBuffer() {
-        return (ByteBuffer) buffer.clear();
+        buffer.clear();
+        return (ByteBuffer) buffer.limit(headerBytes + slotBytes * slots.length);
+    }
+
+    /**
+     * @return view that is limited to the header in front of the first slot
+     */
+    public ByteBuffer clearHeaderBuffer() {
+        return (ByteBuffer) header.clear();
+    }
+
+    /**
+     * @param slot zero based slot index
+     * @return view that starts at the beginning of the slot and is limited to the slot size
+     */
+    public ByteBuffer clearSlotBuffer(int slot) {
+        return (ByteBuffer) slots[slot].clear();
+    }
+
+    public int getHeaderBytes() {
+        return headerBytes;
+    }
+
+    public int getSlotBytes() {
+        return slotBytes;
+    }
+
+    public int getNumSlots() {
+        return slots.length;
     }
 
     @Override
@@ -67,35 +120,98 @@ public class SharedMemory implements Closeable {
         return backingFile;
     }
 
+    /**
+     * @return store that the backing file was created in, which may be a fallback of the requested store
+     */
+    public BackingStore getBackingStore() {
+        return backingStore;
+    }
+
     public boolean isOpen() {
         return channel.isOpen();
     }
 
-    private SharedMemory(int numBytes) {
-        checkArgument(numBytes > 0, "Allocation must be greater than zero bytes");
-
-        // Create uniquely named file
-        backingFile = new File("shared_" + dateFormat.get().format(new Date()) + ".tmp");
-        checkState(!backingFile.exists(), "Generated unique name already exists");
+    private SharedMemory(int headerBytes, int slotBytes, int numSlots, BackingStore store) {
+        checkArgument(headerBytes >= 0, "Header can't be negative");
+        checkArgument(slotBytes > 0, "Allocation must be greater than zero bytes");
+        checkArgument(numSlots > 0, "Number of slots must be greater than zero");
+        checkArgument(headerBytes + (long) slotBytes * numSlots <= Integer.MAX_VALUE, "Allocation must be smaller than 2GB");
+        this.headerBytes = headerBytes;
+        this.slotBytes = slotBytes;
+        int numBytes = headerBytes + slotBytes * numSlots;
+        String fileName = "shared_" + dateFormat.get().format(new Date()) + "_" + fileCounter.getAndIncrement() + ".tmp";
+
+        // Map a file in the first store that is available
+        MappedByteBuffer mapped = null;
+        FileChannel mappedChannel = null;
+        File file = null;
+        while (true) {
+            File directory = store.getDirectory();
+            BackingStore fallback = store.getFallback();
+            if (directory != null) {
+                file = new File(directory, fileName);
+                checkState(!file.exists(), "Generated unique name already exists");
+                long mappedBytes = roundUp(numBytes, store.getPageSize());
+                checkArgument(mappedBytes <= Integer.MAX_VALUE, "Allocation must be smaller than 2GB");
+                try {
+                    mappedChannel = new RandomAccessFile(file, "rw").getChannel();
+                    mapped = mappedChannel.map(FileChannel.MapMode.READ_WRITE, 0, mappedBytes);
+                    break;
+                } catch (IOException e) {
+                    closeSilently(mappedChannel);
+                    mappedChannel = null;
+                    file.delete();
+                    if (fallback == null)
+                        throw new RuntimeException(e);
+                    System.err.println("Could not map shared memory in " + store.getName() + ": " + e.getMessage());
+                }
+            }
+            checkState(fallback != null, "No backing store available");
+            store = fallback;
+        }
+        backingFile = file;
+        backingStore = store;
+        channel = mappedChannel;
+        buffer = mapped;
+        buffer.order(ByteOrder.nativeOrder());
+
+        // Fault in all pages, so that the first frames don't need to wait for the kernel
+        if (store.isPreTouch()) {
+            int pageSize = store.getPageSize();
+            for (int i = 0; i < buffer.capacity(); i += pageSize) {
+                buffer.put(i, (byte) 0);
+            }
+        } else {
+            buffer.load();
+        }
 
-        // Load shared memory
-        try {
-            channel = new RandomAccessFile(backingFile, "rw")
-                    .getChannel();
-            buffer = channel
-                    .map(FileChannel.MapMode.READ_WRITE, 0, numBytes)
-                    .load();
-            buffer.order(ByteOrder.nativeOrder());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        // Create views once so that the writer doesn't need to allocate anything per frame
+        buffer.limit(headerBytes).position(0);
+        header = buffer.slice().order(ByteOrder.nativeOrder());
+        slots = new ByteBuffer[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            int offset = headerBytes + i * slotBytes;
+            buffer.limit(offset + slotBytes).position(offset);
+            slots[i] = buffer.slice().order(ByteOrder.nativeOrder());
         }
+        buffer.clear();
+
+    }
 
+    private static long roundUp(long value, int multiple) {
+        return (value + multiple - 1) / multiple * multiple;
     }
 
     final File backingFile;
+    final BackingStore backingStore;
     final FileChannel channel;
     final MappedByteBuffer buffer;
+    final ByteBuffer header;
+    final ByteBuffer[] slots;
+    final int headerBytes;
+    final int slotBytes;
 
+    private static final AtomicInteger fileCounter = new AtomicInteger(0);
     private static final ThreadLocal<SimpleDateFormat> dateFormat = new ThreadLocal<SimpleDateFormat>() {
         @Override
         protected SimpleDateFormat initialValue() {
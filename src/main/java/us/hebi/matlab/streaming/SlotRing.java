@@ -0,0 +1,338 @@
+package us.hebi.matlab.streaming;
+
+import java.util.concurrent.TimeUnit;
+
+import static us.hebi.matlab.streaming.Preconditions.*;
+
+/**
+ * Keeps track of the slots in a multi-slot shared memory region. The producer
+ * always writes into a slot that is neither being read nor holds the most recent
+ * complete frame, so with three or more slots it never has to wait for a slow
+ * reader. Readers always get the most recently published slot.
+ * <p>
+ * Queued delivery policies instead keep all published slots in a FIFO that readers
+ * drain in order. Once all slots are queued or being read, the policy decides whether
+ * the producer waits, replaces the oldest queued slot, or discards the new frame.
+ * <p>
+ * The monitor only guards the slot indices and is never held while data gets
+ * copied into or out of the shared memory. Readers may poll the publish count
+ * before waiting on the monitor, depending on the {@link WaitStrategy}.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class SlotRing {
+
+    SlotRing(int numSlots) {
+        this(numSlots, DeliveryPolicy.LATEST);
+    }
+
+    SlotRing(int numSlots, DeliveryPolicy policy) {
+        checkArgument(numSlots > 0, "Number of slots must be greater than zero");
+        this.numSlots = numSlots;
+        this.policy = checkNotNull(policy);
+        this.queue = new int[numSlots];
+        this.queued = new boolean[numSlots];
+    }
+
+    /**
+     * @param timeoutMs max time to wait in case all slots are busy, which can only happen for fewer than three
+     *                  slots or for queued policies
+     * @return index of the slot that may be written, or -1 on timeout, if the ring has been closed, or if the
+     * queue is full and the policy discards new frames
+     */
+    synchronized int acquireWriteSlot(long timeoutMs) throws InterruptedException {
+        checkState(writeSlot < 0, "Previous write slot has not been published");
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!closed) {
+
+            // Prefer slots that neither hold unread frames nor are being read
+            for (int i = 1; i <= numSlots; i++) {
+                int slot = (lastWriteSlot + i) % numSlots;
+                if (slot != readSlot && (policy.isQueued() ? !queued[slot] : slot != latestSlot)) {
+                    if (slot == latestSlot)
+                        latestSlot = -1;
+                    return writeSlot = lastWriteSlot = slot;
+                }
+            }
+
+            switch (policy) {
+                case LATEST:
+                    // Fall back to overwriting an unread frame, e.g., for a single slot
+                    if (latestSlot >= 0 && latestSlot != readSlot) {
+                        writeSlot = lastWriteSlot = latestSlot;
+                        latestSlot = -1;
+                        discardedUnread |= hasUpdated;
+                        hasUpdated = false;
+                        return writeSlot;
+                    }
+                    break;
+                case QUEUE_DROP_OLDEST:
+                    if (queueSize > 0) {
+                        writeSlot = lastWriteSlot = pollQueue();
+                        if (writeSlot == latestSlot)
+                            latestSlot = -1;
+                        discardedUnread = true;
+                        return writeSlot;
+                    }
+                    break;
+                case QUEUE_DROP_NEWEST:
+                    if (queueSize > 0)
+                        return -1;
+                    break;
+                case QUEUE_BLOCK:
+                    break;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                return -1;
+            wait(remaining);
+
+        }
+        return -1;
+    }
+
+    /**
+     * Marks the current write slot as the most recent complete frame and wakes up waiting readers
+     *
+     * @return true if this replaced a frame that no reader has acquired
+     */
+    synchronized boolean publish() {
+        checkState(writeSlot >= 0, "No slot has been acquired for writing");
+        boolean dropped = discardedUnread;
+        if (policy.isQueued()) {
+            offerQueue(writeSlot);
+        } else {
+            dropped |= hasUpdated;
+        }
+        latestSlot = writeSlot;
+        writeSlot = -1;
+        hasUpdated = true;
+        discardedUnread = false;
+        publishCount++;
+        notifyAll();
+        return dropped;
+    }
+
+    /**
+     * Discards all frames that no reader has acquired yet, e.g., because they don't match a new
+     * memory layout. Waits for the reader to release its slot first, so that nobody is copying data
+     * while the layout changes. Gets called by the producer while it doesn't hold a write slot.
+     *
+     * @param timeoutMs max time to wait for the reader, in case it doesn't release its slot properly
+     * @return number of unread frames that got discarded
+     */
+    synchronized int discardUnread(long timeoutMs) throws InterruptedException {
+        checkState(writeSlot < 0, "Can't discard frames while a slot is being written");
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!closed && readSlot >= 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+                break;
+            wait(remaining);
+        }
+
+        int discarded = policy.isQueued() ? queueSize : hasUpdated ? 1 : 0;
+        while (queueSize > 0) {
+            pollQueue();
+        }
+        latestSlot = -1;
+        hasUpdated = false;
+        discardedUnread = false;
+        notifyAll();
+        return discarded;
+    }
+
+    /**
+     * Returns the current write slot without publishing it, e.g., if the frame could not be converted
+     */
+    synchronized void abortWrite() {
+        writeSlot = -1;
+        notifyAll();
+    }
+
+    /**
+     * Waits for a frame that has not been read yet. For queued policies this is the oldest queued frame.
+     *
+     * @return index of the slot that may be read, or -1 on timeout or if the ring has been closed
+     */
+    int acquireNextReadSlot(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if (waitStrategy != WaitStrategy.BLOCK) {
+            // Read the count first, so that frames published after the check end the spin
+            long count = publishCount;
+            if (!hasNextReadSlot())
+                spinWhilePublishCountAtMost(count, deadline);
+        }
+        return acquireNextReadSlotBefore(deadline);
+    }
+
+    private synchronized boolean hasNextReadSlot() {
+        releaseReadSlot(); // don't hold on to a slot that the producer may need while spinning
+        return policy.isQueued() ? queueSize > 0 : hasUpdated;
+    }
+
+    private synchronized int acquireNextReadSlotBefore(long deadline) throws InterruptedException {
+        releaseReadSlot();
+        while (!closed && (policy.isQueued() ? queueSize == 0 : !hasUpdated)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return -1;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        if (closed || !policy.isQueued())
+            return acquireLatestReadSlot();
+        readSlot = pollQueue();
+        notifyAll(); // the producer may be waiting for space in the queue
+        return readSlot;
+    }
+
+    /**
+     * @return index of the most recent complete slot regardless of whether it has been read before, or -1 if there is none
+     */
+    synchronized int acquireLatestReadSlot() {
+        releaseReadSlot();
+        if (closed || latestSlot < 0)
+            return -1;
+        hasUpdated = false;
+
+        // The latest frame is the tail of the queue, so skipping ahead to it drains the queue
+        if (policy.isQueued() && queued[latestSlot]) {
+            discardedUnread |= queueSize > 1;
+            while (queueSize > 0) {
+                pollQueue();
+            }
+            notifyAll();
+        }
+        return readSlot = latestSlot;
+    }
+
+    /**
+     * @return true if the reader had a slot and it has been released
+     */
+    synchronized boolean releaseReadSlot() {
+        if (readSlot < 0)
+            return false;
+        readSlot = -1;
+        notifyAll();
+        return true;
+    }
+
+    synchronized int getReadSlot() {
+        return readSlot;
+    }
+
+    /**
+     * @return number of published frames that have not been acquired by a reader. Always zero for LATEST.
+     */
+    synchronized int getQueueSize() {
+        return queueSize;
+    }
+
+    private void offerQueue(int slot) {
+        queue[(queueHead + queueSize) % numSlots] = slot;
+        queued[slot] = true;
+        queueSize++;
+    }
+
+    private int pollQueue() {
+        int slot = queue[queueHead];
+        queueHead = (queueHead + 1) % numSlots;
+        queueSize--;
+        queued[slot] = false;
+        return slot;
+    }
+
+    long getPublishCount() {
+        return publishCount;
+    }
+
+    /**
+     * Waits until more than the specified number of frames have been published. Lets readers
+     * that don't take part in the slot locking, e.g., processes that validate the data via
+     * sequence numbers, wait without polling.
+     *
+     * @return true if more than count frames have been published before the timeout
+     */
+    boolean awaitPublishCountAbove(long count, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        if (waitStrategy != WaitStrategy.BLOCK)
+            spinWhilePublishCountAtMost(count, deadline);
+        return awaitPublishCountAboveBefore(count, deadline);
+    }
+
+    private synchronized boolean awaitPublishCountAboveBefore(long count, long deadline) throws InterruptedException {
+        while (!closed && publishCount <= count) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return !closed;
+    }
+
+    /**
+     * Polls the publish count without taking the monitor until it exceeds the count, the ring
+     * gets closed, or the spin time of the wait strategy runs out. Spinning threads yield after
+     * a while, so that the producer can still make progress on machines with few cores.
+     */
+    private void spinWhilePublishCountAtMost(long count, long deadline) {
+        long end = waitStrategy == WaitStrategy.BUSY_SPIN ? deadline : Math.min(deadline, System.nanoTime() + SPIN_NANOS);
+        int spins = 0;
+        while (publishCount <= count && !closed && end - System.nanoTime() > 0) {
+            if (++spins > MAX_SPINS_WITHOUT_YIELD)
+                Thread.yield();
+        }
+    }
+
+    void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = checkNotNull(waitStrategy);
+    }
+
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Wakes up all waiting threads and blocks until the producer is done with its
+     * current slot, so that the backing memory can be closed safely afterwards.
+     */
+    synchronized void close() throws InterruptedException {
+        closed = true;
+        readSlot = -1;
+        notifyAll();
+        while (writeSlot >= 0) {
+            wait();
+        }
+    }
+
+    int getNumSlots() {
+        return numSlots;
+    }
+
+    DeliveryPolicy getPolicy() {
+        return policy;
+    }
+
+    private final int numSlots;
+    private final DeliveryPolicy policy;
+    private int lastWriteSlot = -1;
+    private int writeSlot = -1;
+    private int latestSlot = -1;
+    private int readSlot = -1;
+    private boolean hasUpdated = false;
+    private boolean discardedUnread = false;
+    private volatile boolean closed = false;
+    private volatile long publishCount = 0;
+    private volatile WaitStrategy waitStrategy = WaitStrategy.BLOCK;
+    private static final long SPIN_NANOS = 200 * 1000; // [ns]
+    private static final int MAX_SPINS_WITHOUT_YIELD = 1000;
+
+    // FIFO of published slots for queued policies
+    private final int[] queue;
+    private final boolean[] queued;
+    private int queueHead = 0;
+    private int queueSize = 0;
+
+}
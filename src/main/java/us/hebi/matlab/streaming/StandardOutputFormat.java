@@ -0,0 +1,130 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+/**
+ * Output formats that are always available. All of them expect interleaved 8 bit
+ * frames (BGR or gray) except for MONO16, which also accepts 16 bit frames.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+enum StandardOutputFormat implements MatlabImageConverterProvider {
+
+    /**
+     * uint8 RGB for color frames and uint8 gray for gray frames. Default.
+     */
+    AUTO("auto", "uint8") {
+        @Override
+        public int getOutputChannels(int inputChannels, int inputDepth) {
+            return isUnsignedByte(inputDepth) && (inputChannels == 1 || inputChannels == 3) ? inputChannels : 0;
+        }
+
+        @Override
+        public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel) {
+            return BackgroundFrameGrabber.createConverter(width, height, inputChannels, parallel);
+        }
+    },
+
+    /**
+     * uint8 RGB, i.e., the same as MATLAB's snapshots of color cameras
+     */
+    RGB8("rgb8", "uint8") {
+        @Override
+        public int getOutputChannels(int inputChannels, int inputDepth) {
+            return isUnsignedByte(inputDepth) && inputChannels == 3 ? 3 : 0;
+        }
+
+        @Override
+        public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel) {
+            return BackgroundFrameGrabber.createConverter(width, height, inputChannels, parallel);
+        }
+    },
+
+    /**
+     * uint8 gray. Color frames get weighted the same way as MATLAB's rgb2gray.
+     */
+    GRAY8("gray8", "uint8") {
+        @Override
+        public int getOutputChannels(int inputChannels, int inputDepth) {
+            return isUnsignedByte(inputDepth) && (inputChannels == 1 || inputChannels == 3) ? 1 : 0;
+        }
+
+        @Override
+        public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel) {
+            if (inputChannels == 3)
+                return new MatlabImageConverterGrayFromBGR(width, height);
+            return BackgroundFrameGrabber.createConverter(width, height, inputChannels, parallel);
+        }
+    },
+
+    /**
+     * single RGB or gray normalized to [0, 1], i.e., the same as MATLAB's im2single
+     */
+    SINGLE("single", "single") {
+        @Override
+        public int getOutputChannels(int inputChannels, int inputDepth) {
+            return isUnsignedByte(inputDepth) && (inputChannels == 1 || inputChannels == 3) ? inputChannels : 0;
+        }
+
+        @Override
+        public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel) {
+            return new MatlabImageConverterSingle(width, height, inputChannels);
+        }
+    },
+
+    /**
+     * uint16 gray, e.g., for depth cameras. 16 bit frames get copied as is, and 8 bit
+     * frames get scaled to the full range the same way as MATLAB's im2uint16.
+     */
+    MONO16("mono16", "uint16") {
+        @Override
+        public int getOutputChannels(int inputChannels, int inputDepth) {
+            int bits = Math.abs(inputDepth);
+            return inputChannels == 1 && (bits == 8 || bits == 16) ? 1 : 0;
+        }
+
+        @Override
+        public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel) {
+            return new MatlabImageConverterMono16(width, height);
+        }
+    },
+
+    /**
+     * uint8 YCbCr planes with the same studio range as MATLAB's rgb2ycbcr
+     */
+    YCBCR8("ycbcr8", "uint8") {
+        @Override
+        public int getOutputChannels(int inputChannels, int inputDepth) {
+            return isUnsignedByte(inputDepth) && inputChannels == 3 ? 3 : 0;
+        }
+
+        @Override
+        public MatlabImageConverter create(int width, int height, int inputChannels, boolean parallel) {
+            return new MatlabImageConverterYCbCr(width, height);
+        }
+    };
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getMatlabClass() {
+        return matlabClass;
+    }
+
+    private static boolean isUnsignedByte(int depth) {
+        return Math.abs(depth) == Frame.DEPTH_UBYTE;
+    }
+
+    StandardOutputFormat(String name, String matlabClass) {
+        this.name = name;
+        this.matlabClass = matlabClass;
+    }
+
+    private final String name;
+    private final String matlabClass;
+
+}
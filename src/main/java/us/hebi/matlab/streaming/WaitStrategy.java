@@ -0,0 +1,31 @@
+package us.hebi.matlab.streaming;
+
+/**
+ * Determines how readers wait for the next frame. Spinning avoids the cost of parking and
+ * waking up the thread, which can take tens of microseconds and much longer on a busy
+ * system, but it keeps a core busy while waiting.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public enum WaitStrategy {
+
+    /**
+     * Parks the thread until the frame arrives. Uses no CPU while waiting. Default.
+     */
+    BLOCK,
+
+    /**
+     * Polls for a short time before parking the thread, so that readers that are
+     * only slightly early wake up immediately.
+     */
+    SPIN_THEN_PARK,
+
+    /**
+     * Polls until the frame arrives or the timeout expires. Lowest wake-up latency, but uses
+     * a full core while waiting, so it should only be used by control loops that run on a
+     * dedicated core and expect the next frame soon.
+     */
+    BUSY_SPIN
+
+}
@@ -9,6 +9,87 @@ classdef HebiCam < handle
     %   cam = HebiCam(uri, 'timeout', value) additionally specifies a
     %   timeout in [seconds] for grabbing a single frame. Defaults to 1s.
     %
+    %   cam = HebiCam(uri, 'NumSlots', value) sets the number of frames
+    %   that are kept in shared memory. With 3 or more slots the
+    %   background thread never has to wait for getsnapshot to finish
+    %   copying. Defaults to 3.
+    %
+    %   cam = HebiCam(uri, 'LockFree', true) reads frames without calling
+    %   into Java as long as a new frame is available. Consistency is
+    %   checked via sequence numbers in the shared memory header, and
+    %   the copy gets retried if the frame was overwritten during the
+    %   copy. Defaults to false.
+    %
+    %   cam = HebiCam(uri, 'Parallel', true) converts each frame on all
+    %   available cores. This helps to keep up with high resolution
+    %   streams, e.g., 4K. Defaults to false.
+    %
+    %   cam = HebiCam(uri, 'Lazy', true) only converts frames when
+    %   getsnapshot gets called. The background thread keeps decoding,
+    %   but idle cameras use much less CPU. Each getsnapshot call takes
+    %   longer because it includes the conversion. Defaults to false.
+    %
+    %   cam = HebiCam(uri, 'Pipelined', true) converts frames on a
+    %   second background thread, so that decoding the next frame
+    %   overlaps with converting the current one. This helps to reach
+    %   the full frame rate of high resolution h264 streams. Can't be
+    %   combined with 'Lazy'. Defaults to false.
+    %
+    %   cam = HebiCam(uri, 'Wait', strategy) sets how getsnapshot waits
+    %   for new frames. 'block' uses no CPU while waiting. 'spin' polls
+    %   briefly before blocking. 'busySpin' polls until the frame
+    %   arrives, which wakes up within microseconds, but uses a full
+    %   core. Defaults to 'block'.
+    %
+    %   cam = HebiCam(uri, 'History', N) keeps copies of the last N
+    %   frames in a single block, so that getburst can return a burst of
+    %   frames with one call, e.g., for temporal filtering. Defaults to 0.
+    %
+    %   cam = HebiCam(uri, 'BackingStore', store) selects where the
+    %   shared memory file gets created. 'tmpfs' uses /dev/shm, which
+    %   never gets written to disk. 'hugepages' uses a mounted hugetlbfs.
+    %   'cwd' uses the current directory. Any other value is used as a
+    %   directory. Unavailable stores fall back to 'tmpfs' and then to
+    %   'cwd'. Defaults to 'tmpfs'.
+    %
+    %   cam = HebiCam(uri, 'PreTouch', true) writes to all pages of the
+    %   shared memory right away, so that the first frames don't wait
+    %   for page faults. Defaults to false.
+    %
+    %   cam = HebiCam(uri, 'StallTimeout', value) sets the time in
+    %   [seconds] without frames after which the source gets restarted.
+    %   Failed or lost connections get retried with an increasing delay
+    %   while the shared memory stays mapped, so getsnapshot continues
+    %   to work once the source is back. 0 disables reconnects. Defaults
+    %   to 5s.
+    %
+    %   cam = HebiCam(uri, 'Delivery', policy) sets which frames get
+    %   returned by getsnapshot. 'latest' always returns the most recent
+    %   frame. 'block', 'dropOldest', and 'dropNewest' queue up to
+    %   NumSlots-1 frames that get returned in order, and determine what
+    %   happens once the queue is full. Queues can't be combined with
+    %   'LockFree'. Defaults to 'latest'.
+    %
+    %   cam = HebiCam(uri, 'Format', format) selects the data that
+    %   getsnapshot returns. The conversion happens on the background
+    %   thread, so there is no need for im2single etc. in MATLAB.
+    %       'auto'   - uint8 RGB for color sources and uint8 gray for
+    %                  gray sources (default)
+    %       'rgb8'   - uint8 RGB
+    %       'gray8'  - uint8 gray, same weights as rgb2gray. Network
+    %                  streams get decoded to gray directly
+    %       'single' - single RGB or gray within [0,1], as im2single
+    %       'mono16' - uint16 gray, e.g., for depth cameras
+    %       'ycbcr8' - uint8 YCbCr, same as rgb2ycbcr
+    %
+    %   cam = HebiCam(uri, 'Profile', profile) tunes how network
+    %   streams and video files get opened and decoded.
+    %       'default'        - low latency RTSP over UDP (default)
+    %       'lowest-latency' - no input buffering, single threaded
+    %                          decoding
+    %       'max-throughput' - RTSP over TCP, multi-threaded decoding
+    %       'fast-start'     - shorter stream analysis at startup
+    %
     %   The resource can be an URL of an IP camera, a file descriptor
     %   of a local device (e.g. '/dev/video0'), or a the number
     %   of a local usb camera (e.g. 1). Possible sources are limited
@@ -16,12 +97,19 @@ classdef HebiCam < handle
     %
     % HebiCam Properties:
     %    url      - video source, e.g., local device or remote ip camera
-    %    width    - width of the gathered image
+    %    width    - width of the gathered image. Gets updated if the
+    %               source changes its resolution
     %    height   - height of the gathered image
     %    channels - channel, e.g., rgb or grayscale
     %
     % HebiCam Methods:
     %    getsnapshot - acquires a single image
+    %    getburst    - returns the last N frames at once
+    %    setroi      - restricts the acquisition to a region of interest
+    %    getstats    - returns frame counts and per-stage latencies
+    %    getstate    - returns whether the source is connected
+    %    startrecording - records all frames in the background
+    %    stoprecording  - finishes the current recording
     %
     %   Example:
     %       % Connect to a device (e.g. usb camera) and display images
@@ -59,11 +147,23 @@ classdef HebiCam < handle
         width % width of the gathered image
         height % height of the gathered image
         channels % channel, e.g., rgb vs grayscale)
+        format % output format, e.g., 'single'
     end
     
     properties (Access = private)
         file
+        headerBytes
+        slotBytes
+        pixelClass
+        bytesPerSample
+        header
+        generation
+        history
+        historyPixels
         cam
+        lockFree
+        timeout
+        lastSequence = 0
     end
     
     methods (Static, Access = public)
@@ -85,84 +185,58 @@ classdef HebiCam < handle
         end
     end
     
-    methods (Access = public)
-        
-        function this = HebiCam(varargin)
-            % constructor - connects to the video source
+    methods (Static, Hidden)
+        function grabber = createGrabber(uri, timeout, imageMode, profile)
+            % Creates an appropriate frame grabber for the requested
+            % location. Shared with HebiMultiCam.
+            loc = us.hebi.matlab.streaming.DeviceLocation(uri);
             
-            % parse user input
-            p = inputParser;
-            p.addRequired('URI', @(v) ~isempty(v) && (isscalar(v) || ischar(v)));
-            p.addParameter('Timeout', 1, @(v) isnumeric(v) && v > 0.001); % [s]
-            p.addParameter('ImageMode', [], @ischar);
-            p.parse(varargin{:});
-            args = p.Results;
+            % Load only the native libraries of the required backend,
+            % e.g., OpenCV for usb cameras and FFmpeg for streams. This
+            % runs in the background while the device gets checked.
+            us.hebi.matlab.streaming.NativeLoader.preload(loc);
             
-            % make sure Java libraries have been loaded
-            HebiCam.loadLibs();
-            
-            % Create an appropriate frame grabber for the requested location
-            this.url = args.URI;
-            loc = us.hebi.matlab.streaming.DeviceLocation(args.URI);
-            
-            if loc.isNumber() % 1, 2, 3, etc.
-                
-                % Java uses zero based indexing
-                javaIndex = args.URI-1;
-                grabber = us.hebi.matlab.streaming.FixedOpenCVFrameGrabber(javaIndex);
-                
-            elseif loc.isUrl() % http://<ip>/mjpeg/, rtsp://...
+            if loc.isUrl() % http://<ip>/mjpeg/, rtsp://...
                 
                 % Some grabbers have issues if the url is valid, but the
                 % device is not reachable, e.g., not turned on. This could
                 % result in MATLAB hanging forever, so we need to check
-                % whether the device is actually on the network.
+                % whether the device is actually on the network. Connects
+                % to the stream port, which also works if pings are
+                % blocked, and returns as soon as the port answers.
                 timeoutMs = 5000;
                 if ~loc.isReachableUrl(timeoutMs)
                     error('remote url is not reachable');
                 end
                 
-                % Create Grabber
-                grabber = org.bytedeco.javacv.FFmpegFrameGrabber(args.URI);
-                
-                % Set 'low-latency' options for RTSP
-                % see https://www.ffmpeg.org/ffmpeg-protocols.html#rtp
-                grabber.setOption('rtsp_transport', 'udp');
-                grabber.setOption('max_delay', '0'); % disable reordering delay
-                grabber.setOption('reorder_queue_size', '1');
-                
-                % Sometimes mjpeg sources complain when the format is not
-                % set. For now we assume that http:// urls are mjpeg
-                % streams, which has been true for all ip cameras that I've
-                % tested so far. However, this may need to be adapted for
-                % some more exotic cameras.
-                if loc.hasUrlScheme('http')
-                    grabber.setFormat('mjpeg');
-                end
-                
-            else
-                % file descriptor, e.g., /dev/usb0
-                grabber = us.hebi.matlab.streaming.FixedOpenCVFrameGrabber(args.URI);
             end
             
+            % Select the grabber and apply FFmpeg options, e.g., low
+            % latency RTSP settings
+            grabberProfile = us.hebi.matlab.streaming.GrabberProfile.forName(profile);
+            grabber = us.hebi.matlab.streaming.GrabberFactory.createGrabber(loc, grabberProfile);
+            
             % Set a timeout in case a camera gets disconnected or shutdown.
             % Note that this only works for grabbing frames and not at
             % start.
-            grabber.setTimeout(int32(args.Timeout * 1E3)); % [s] to [ms]
+            grabber.setTimeout(int32(timeout * 1E3)); % [s] to [ms]
             
-            % Set log level (ffmpeg only?)
-            logLevel = org.bytedeco.javacpp.avutil.AV_LOG_FATAL;
-            org.bytedeco.javacpp.avutil.av_log_set_level(logLevel);
+            % Set log level. Only applies to FFmpeg, so don't load
+            % FFmpeg for other grabbers.
+            if isa(grabber, 'org.bytedeco.javacv.FFmpegFrameGrabber')
+                logLevel = org.bytedeco.javacpp.avutil.AV_LOG_FATAL;
+                org.bytedeco.javacpp.avutil.av_log_set_level(logLevel);
+            end
             
             % Force color mode if applicable
-            if ~isempty(args.ImageMode)
+            if ~isempty(imageMode)
                 
-                if strcmpi(args.ImageMode, 'COLOR') == 1
+                if strcmpi(imageMode, 'COLOR') == 1
                     enumField = 'COLOR';
-                elseif strcmpi(args.ImageMode, 'GRAY') == 1
+                elseif strcmpi(imageMode, 'GRAY') == 1
                     enumField = 'GRAY';
                 else
-                    error(['Unknown image mode: ' args.ImageMode]);
+                    error(['Unknown image mode: ' imageMode]);
                 end
                 
                 % Java enums can't be instantiated directly, so we need
@@ -172,56 +246,375 @@ classdef HebiCam < handle
                 grabber.setImageMode(mode);
                 
             end
+        end
+    end
+    
+    methods (Access = public)
+        
+        function this = HebiCam(varargin)
+            % constructor - connects to the video source
             
-            % Create a Java background thread for the FrameGrabber
-            this.cam = us.hebi.matlab.streaming.BackgroundFrameGrabber(grabber);
+            % parse user input
+            p = inputParser;
+            p.addRequired('URI', @(v) ~isempty(v) && (isscalar(v) || ischar(v)));
+            p.addParameter('Timeout', 1, @(v) isnumeric(v) && v > 0.001); % [s]
+            p.addParameter('ImageMode', [], @ischar);
+            p.addParameter('NumSlots', 3, @(v) isnumeric(v) && isscalar(v) && v >= 1);
+            p.addParameter('LockFree', false, @(v) islogical(v) || isnumeric(v));
+            p.addParameter('Parallel', false, @(v) islogical(v) || isnumeric(v));
+            p.addParameter('Delivery', 'latest', @ischar);
+            p.addParameter('Lazy', false, @(v) islogical(v) || isnumeric(v));
+            p.addParameter('Pipelined', false, @(v) islogical(v) || isnumeric(v));
+            p.addParameter('Wait', 'block', @ischar);
+            p.addParameter('Format', 'auto', @ischar);
+            p.addParameter('Profile', 'default', @ischar);
+            p.addParameter('History', 0, @(v) isnumeric(v) && isscalar(v) && v >= 0);
+            p.addParameter('BackingStore', 'tmpfs', @ischar);
+            p.addParameter('PreTouch', false, @(v) islogical(v) || isnumeric(v));
+            p.addParameter('StallTimeout', 5, @(v) isnumeric(v) && isscalar(v) && v >= 0); % [s]
+            p.parse(varargin{:});
+            args = p.Results;
             
-            % Get image data and shared memory location
-            this.height = this.cam.getHeight();
-            this.width = this.cam.getWidth();
-            this.channels = this.cam.getChannels();
-            path = char(this.cam.getBackingFile());
+            % make sure Java libraries have been loaded
+            HebiCam.loadLibs();
             
-            % Some versions have problems with mapping HxWx1, so we special
-            % case grayscale images.
-            pixelFormat = [this.height this.width this.channels];
-            if this.channels == 1 % grayscale
-                pixelFormat(3) = [];
+            % Create an appropriate frame grabber for the requested location
+            this.url = args.URI;
+            grabber = HebiCam.createGrabber(args.URI, args.Timeout, args.ImageMode, args.Profile);
+            
+            % Select how frames get delivered to getsnapshot
+            switch lower(args.Delivery)
+                case 'latest'
+                    enumField = 'LATEST';
+                case 'block'
+                    enumField = 'QUEUE_BLOCK';
+                case 'dropoldest'
+                    enumField = 'QUEUE_DROP_OLDEST';
+                case 'dropnewest'
+                    enumField = 'QUEUE_DROP_NEWEST';
+                otherwise
+                    error(['Unknown delivery policy: ' args.Delivery]);
+            end
+            if args.LockFree && ~strcmp(enumField, 'LATEST')
+                error('LockFree reads always return the latest frame and can''t be combined with queues');
             end
+            policy = javaMethod('valueOf', 'us.hebi.matlab.streaming.DeliveryPolicy', enumField);
             
-            % Map memory to data
-            this.file = memmapfile(path, 'Format', { ...
-                'uint64' 1 'frame';
-                'double' 1 'timestamp';
-                'uint8' pixelFormat 'pixels';
-                }, 'Repeat', 1);
+            % Create a Java background thread for the FrameGrabber
+            store = us.hebi.matlab.streaming.BackingStore.forName(args.BackingStore);
+            store = store.withPreTouch(logical(args.PreTouch));
+            this.cam = us.hebi.matlab.streaming.BackgroundFrameGrabber(...
+                grabber, int32(args.NumSlots), policy, args.Format, store);
+            this.cam.setParallelConversion(logical(args.Parallel));
+            this.cam.setLazyConversion(logical(args.Lazy));
+            this.cam.setPipelinedConversion(logical(args.Pipelined));
+            this.cam.setHistoryLength(int32(args.History));
+            this.cam.setStallTimeout(int64(args.StallTimeout * 1E3)); % [s] to [ms]
+            
+            % Select how getsnapshot waits for new frames
+            switch lower(args.Wait)
+                case 'block'
+                    enumField = 'BLOCK';
+                case 'spin'
+                    enumField = 'SPIN_THEN_PARK';
+                case 'busyspin'
+                    enumField = 'BUSY_SPIN';
+                otherwise
+                    error(['Unknown wait strategy: ' args.Wait]);
+            end
+            this.cam.setWaitStrategy(javaMethod('valueOf', 'us.hebi.matlab.streaming.WaitStrategy', enumField));
+            
+            % Get image data and shared memory location
+            this.channels = this.cam.getChannels();
+            this.format = char(this.cam.getOutputFormat());
+            this.lockFree = logical(args.LockFree);
+            this.timeout = args.Timeout;
+            mapMemory(this);
             
             % start retrieval
             start(this.cam);
         end
         
-        function [I,frame,timestamp] = getsnapshot(this)
-            %getsnapshot - acquires a single image frame
-            hasImage = tryGetNextImageLock(this.cam);
-            if hasImage
-                % Mapped memory is accessed by reference, so the data
-                % needs to be copied manually.
-                data = this.file.Data;
-                I = data.pixels * 1;
-                frame = data.frame * 1;
-                timestamp = data.timestamp * 1;
+        function [I,frame,timestamp,roi] = getsnapshot(this, afterFrame)
+            %getsnapshot - acquires a single image frame. The optional
+            %roi output returns the [x y width height] of the image
+            %within the full frame.
+            %
+            %getsnapshot(cam, afterFrame) waits for a frame with a
+            %higher frame number, e.g., to skip frames that were
+            %captured before a robot finished moving.
+            if nargin > 1
+                slot = waitForFrameAfter(this.cam, int64(afterFrame), ...
+                    int64(this.timeout * 1E3)); % [s] to [ms]
+                if slot < 0
+                    error('Frame %d did not arrive before the timeout', afterFrame + 1);
+                end
+                checkGeneration(this);
+                [I,frame,timestamp,roi] = readSlot(this, slot + 1);
                 tryReleaseImageLock(this.cam);
-            else
-                stop(this.cam);
+                return;
+            end
+            if this.lockFree
+                [I,frame,timestamp,roi,success] = readLockFree(this);
+                if success
+                    return;
+                end
+            end
+            slot = tryGetNextImageSlot(this.cam);
+            if slot >= 0
+                % Java uses zero based indexing
+                checkGeneration(this);
+                [I,frame,timestamp,roi] = readSlot(this, slot + 1);
+                tryReleaseImageLock(this.cam);
+            elseif strcmp(getstate(this), 'STOPPED')
                 error('Connection to video source was lost. Acquisition stopped.');
+            else
+                % The background thread keeps reconnecting, so later
+                % calls may succeed without creating a new HebiCam
+                error('No frame arrived before the timeout. Video source is %s.', ...
+                    lower(getstate(this)));
+            end
+        end
+        
+        function [I,frames,timestamps] = getburst(this, n)
+            %getburst - returns the last n frames as a single
+            %height x width x channels x n array, ordered from oldest to
+            %newest, together with their frame numbers and timestamps.
+            %Requires the 'History' option. Copies all frames while
+            %holding a single lock. Frames that arrive during the copy
+            %are not part of the history, so frame numbers may have gaps.
+            if isempty(this.history)
+                error('getburst requires the ''History'' option');
+            end
+            historyLength = double(getHistoryLength(this.cam));
+            if nargin < 2
+                n = historyLength;
+            end
+            checkGeneration(this);
+            count = double(lockHistory(this.cam));
+            while this.header.Data.generation ~= this.generation
+                % The history moved before it got locked
+                releaseHistory(this.cam);
+                mapMemory(this);
+                count = double(lockHistory(this.cam));
+            end
+            try
+                n = min([n count historyLength]);
+                if n == 0
+                    error('No frames have been added to the history yet');
+                end
+                meta = this.history.Data;
+                pixels = this.historyPixels.Data.pixels;
+                releaseHistory(this.cam);
+            catch err
+                releaseHistory(this.cam);
+                rethrow(err);
+            end
+            
+            % Entries are stored in ring order with the newest frame at
+            % (count-1) mod length (zero based)
+            entries = mod(count - (n:-1:1), historyLength) + 1;
+            I = pixels(:,:,:,entries);
+            frames = meta.frames(entries);
+            timestamps = meta.timestamps(entries);
+        end
+        
+        function setroi(this, rect)
+            %setroi - restricts the acquisition to a rectangular region
+            %of interest, e.g., setroi(cam, [x y width height]) with the
+            %top left corner at (x,y) as for imcrop. The region can be
+            %moved between frames, e.g., to follow an object. Only the
+            %pixels within the region get converted and copied, which
+            %speeds up both the background thread and getsnapshot.
+            %setroi(cam, []) returns to full frames.
+            if isempty(rect)
+                clearRegionOfInterest(this.cam);
+            else
+                rect = round(rect);
+                setRegionOfInterest(this.cam, ...
+                    int32(rect(1)-1), int32(rect(2)-1), ...
+                    int32(rect(3)), int32(rect(4)));
+            end
+        end
+        
+        function stats = getstats(this)
+            %getstats - returns frame counts and per-stage latencies of
+            %the background acquisition, e.g., stats.getFramesPerSecond()
+            %or stats.getConversionLatency().getP99Ms()
+            stats = getStatistics(this.cam);
+        end
+        
+        function state = getstate(this)
+            %getstate - returns the state of the connection, i.e.,
+            %'CONNECTED', 'STALLED', 'RECONNECTING', or 'STOPPED'
+            state = char(name(getConnectionState(this.cam)));
+        end
+        
+        function startrecording(this, file, varargin)
+            %startrecording - records all grabbed frames on a separate
+            %thread, e.g., startrecording(cam, 'run1.mp4'). Files with a
+            %'.raw' extension get stored uncompressed in memory mapped
+            %segments plus a csv index. Other extensions get encoded by
+            %FFmpeg. Frames that arrive while the recorder is busy get
+            %dropped, so recording never slows down getsnapshot.
+            %
+            %Optional: 'QueueSize' (default 30), 'FrameRate' (default
+            %30), and 'SegmentFrames' (default 300)
+            p = inputParser;
+            p.addRequired('File', @ischar);
+            p.addParameter('QueueSize', 30, @(v) isnumeric(v) && isscalar(v) && v >= 1);
+            p.addParameter('FrameRate', 30, @(v) isnumeric(v) && isscalar(v) && v > 0);
+            p.addParameter('SegmentFrames', 300, @(v) isnumeric(v) && isscalar(v) && v >= 1);
+            p.parse(file, varargin{:});
+            args = p.Results;
+            
+            [folder, name, ext] = fileparts(args.File);
+            if strcmpi(ext, '.raw')
+                if isempty(folder)
+                    folder = pwd;
+                end
+                recorder = us.hebi.matlab.streaming.RawSegmentRecorder(...
+                    java.io.File(folder), name, ...
+                    int32(args.SegmentFrames), int32(args.QueueSize));
+            else
+                recorder = us.hebi.matlab.streaming.FFmpegRecorder(...
+                    args.File, args.FrameRate, int32(args.QueueSize));
+            end
+            startRecording(this.cam, recorder);
+        end
+        
+        function [recorded, dropped] = stoprecording(this)
+            %stoprecording - waits until all queued frames have been
+            %written and returns the number of recorded and dropped frames
+            recorder = stopRecording(this.cam);
+            recorded = 0;
+            dropped = 0;
+            if ~isempty(recorder)
+                recorded = double(getRecordedFrames(recorder));
+                dropped = double(getDroppedFrames(recorder));
+                if ~isempty(getError(recorder))
+                    warning('Recording failed: %s', char(getError(recorder).getMessage()));
+                end
             end
         end
         
     end
     
     methods (Access = private)
+        function mapMemory(this)
+            % Maps the shared memory of the current generation. The
+            % header points to the most recent slot and describes the
+            % pixel data. Each slot contains a frame, or a region of a
+            % frame, so the slots get accessed as raw bytes and only the
+            % used part gets copied.
+            this.generation = double(this.cam.getGeneration());
+            this.height = this.cam.getHeight();
+            this.width = this.cam.getWidth();
+            path = char(this.cam.getBackingFile());
+            numSlots = this.cam.getNumSlots();
+            this.header = memmapfile(path, 'Format', { ...
+                'int64' 1 'latestSlot';
+                'uint64' [1 numSlots] 'sequence';
+                'uint8' [1 8] 'pixelClass';
+                'int32' 1 'channels';
+                'int32' 1 'bytesPerSample';
+                'uint64' 1 'generation';
+                'int32' 1 'width';
+                'int32' 1 'height';
+                }, 'Repeat', 1);
+            description = this.header.Data;
+            this.pixelClass = char(description.pixelClass(description.pixelClass > 0));
+            this.bytesPerSample = double(description.bytesPerSample);
+            this.file = memmapfile(path, 'Format', 'uint8');
+            this.headerBytes = double(this.cam.getHeaderBytes());
+            this.slotBytes = double(this.cam.getSlotBytes());
+            
+            % The history holds the pixels of all frames in one block
+            historyLength = double(this.cam.getHistoryLength());
+            if historyLength > 0
+                historyPath = char(this.cam.getHistoryFile());
+                this.history = memmapfile(historyPath, 'Format', { ...
+                    'uint64' 1 'count';
+                    'uint64' [1 historyLength] 'frames';
+                    'double' [1 historyLength] 'timestamps';
+                    }, 'Repeat', 1);
+                this.historyPixels = memmapfile(historyPath, ...
+                    'Offset', double(this.cam.getHistoryHeaderBytes()), ...
+                    'Format', {this.pixelClass, ...
+                    [this.height this.width this.channels historyLength], 'pixels'}, ...
+                    'Repeat', 1);
+            end
+        end
+        
+        function checkGeneration(this)
+            % Remaps the shared memory after the source changed its
+            % resolution. Java bumps the generation in the old header,
+            % and waits for readers to release their slots first.
+            if this.header.Data.generation ~= this.generation
+                mapMemory(this);
+            end
+        end
+        
+        function [I,frame,timestamp,roi] = readSlot(this, slot)
+            % Copies the contents of a one based slot. Indexing a
+            % mapped array copies only the indexed elements.
+            offset = this.headerBytes + (slot - 1) * this.slotBytes;
+            meta = this.file.Data(offset+1:offset+32);
+            frame = typecast(meta(1:8), 'uint64');
+            timestamp = typecast(meta(9:16), 'double');
+            rect = double(typecast(meta(17:32), 'int32'));
+            roi = [rect(1)+1 rect(2)+1 rect(3) rect(4)];
+            numBytes = rect(3) * rect(4) * this.channels * this.bytesPerSample;
+            I = this.file.Data(offset+33:offset+32+numBytes);
+            if ~strcmp(this.pixelClass, 'uint8')
+                I = typecast(I, this.pixelClass);
+            end
+            if this.channels == 1 % grayscale
+                I = reshape(I, rect(4), rect(3));
+            else
+                I = reshape(I, rect(4), rect(3), this.channels);
+            end
+        end
+        
+        function [I,frame,timestamp,roi,success] = readLockFree(this)
+            % Copies the latest frame without Java calls. A slot is
+            % consistent if its sequence number is even and did not
+            % change during the copy. Returns success = false if no
+            % consistent frame could be read, e.g., due to a timeout.
+            I = []; frame = []; timestamp = []; roi = [];
+            success = false;
+            for attempt = 1:10
+                header = this.header.Data;
+                if header.generation ~= this.generation
+                    mapMemory(this);
+                    continue; % the frame dimensions have changed
+                end
+                slot = header.latestSlot + 1;
+                if slot < 1 || header.sequence(slot) <= this.lastSequence
+                    % Wait for Java to publish a newer frame
+                    if ~waitForSequenceAfter(this.cam, this.lastSequence)
+                        return;
+                    end
+                    continue;
+                end
+                sequence = header.sequence(slot);
+                if mod(sequence, 2) == 1
+                    continue; % slot is being written
+                end
+                [I,frame,timestamp,roi] = readSlot(this, slot);
+                if this.header.Data.sequence(slot) == sequence
+                    this.lastSequence = sequence;
+                    success = true;
+                    return;
+                end
+            end
+        end
+        
         function delete(this)
             % destructor - frees resources
+            this.header = [];
+            this.history = [];
+            this.historyPixels = [];
             this.file = [];
             stop(this.cam);
         end
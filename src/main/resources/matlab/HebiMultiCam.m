@@ -0,0 +1,160 @@
+classdef HebiMultiCam < handle
+    % HebiMultiCam acquires time-aligned frames from multiple sources
+    %   cams = HebiMultiCam({uri1, uri2}) returns an object that
+    %   acquires sets of images that were captured at roughly the same
+    %   time, e.g., for stereo vision. Frames get matched by the time
+    %   they arrived on the host.
+    %
+    %   cams = HebiMultiCam(uris, 'Tolerance', value) sets the max time
+    %   in [seconds] between the first and last frame of a set.
+    %   Defaults to 0.02s.
+    %
+    %   The 'ImageMode', 'Timeout', 'NumSlots', 'Profile', 'BackingStore',
+    %   and 'PreTouch' options behave the same as for HebiCam and apply to
+    %   all sources.
+    %
+    % HebiMultiCam Properties:
+    %    urls     - video sources
+    %    width    - width of the gathered images
+    %    height   - height of the gathered images
+    %    channels - channels of the gathered images
+    %
+    % HebiMultiCam Methods:
+    %    getsnapshot - acquires a single set of images
+    %
+    %   Example:
+    %       % Display a stereo pair side by side
+    %       cams = HebiMultiCam({'rtsp://10.10.10.10/', 'rtsp://10.10.10.11/'});
+    %       [images, frames, timestamps, skew] = getsnapshot(cams);
+    %       imshowpair(images{1}, images{2}, 'montage');
+    
+    % Copyright (c) 2015-2016 HEBI Robotics
+    
+    properties (SetAccess = private, GetAccess = public)
+        urls % video sources
+        width % widths of the gathered images
+        height % heights of the gathered images
+        channels % channels of the gathered images
+    end
+    
+    properties (Access = private)
+        file
+        cam
+    end
+    
+    methods (Access = public)
+        
+        function this = HebiMultiCam(uris, varargin)
+            % constructor - connects to all video sources
+            
+            % parse user input
+            p = inputParser;
+            p.addRequired('URIs', @(v) iscell(v) && ~isempty(v));
+            p.addParameter('Tolerance', 0.02, @(v) isnumeric(v) && v >= 0); % [s]
+            p.addParameter('Timeout', 1, @(v) isnumeric(v) && v > 0.001); % [s]
+            p.addParameter('ImageMode', [], @ischar);
+            p.addParameter('NumSlots', 3, @(v) isnumeric(v) && isscalar(v) && v >= 1);
+            p.addParameter('Profile', 'default', @ischar);
+            p.addParameter('BackingStore', 'tmpfs', @ischar);
+            p.addParameter('PreTouch', false, @(v) islogical(v) || isnumeric(v));
+            p.parse(uris, varargin{:});
+            args = p.Results;
+            
+            % make sure Java libraries have been loaded
+            HebiCam.loadLibs();
+            
+            % Load native libraries and check all network sources in
+            % parallel, so that createGrabber only needs to wait for
+            % cached results
+            this.urls = args.URIs;
+            numCams = numel(args.URIs);
+            for i = 1:numCams
+                loc = us.hebi.matlab.streaming.DeviceLocation(args.URIs{i});
+                us.hebi.matlab.streaming.NativeLoader.preload(loc);
+                if loc.getPort() >= 0
+                    loc.probeReachability(int32(5000));
+                end
+            end
+            
+            % Create a grabber for each source
+            grabbers = javaArray('org.bytedeco.javacv.FrameGrabber', numCams);
+            for i = 1:numCams
+                grabbers(i) = HebiCam.createGrabber(args.URIs{i}, args.Timeout, args.ImageMode, args.Profile);
+            end
+            
+            % Create Java background threads that match the frames
+            store = us.hebi.matlab.streaming.BackingStore.forName(args.BackingStore);
+            store = store.withPreTouch(logical(args.PreTouch));
+            this.cam = us.hebi.matlab.streaming.MultiCameraFrameGrabber(...
+                grabbers, args.Tolerance, int32(args.NumSlots), store);
+            
+            % Each slot holds the set header followed by all frames. The
+            % file header only holds the latest slot and the sequence
+            % numbers, so the dimensions come from the Java getters.
+            format = {
+                'uint64' 1 'set';
+                'double' 1 'skew';
+                };
+            for i = 1:numCams
+                this.height(i) = this.cam.getHeight(i-1);
+                this.width(i) = this.cam.getWidth(i-1);
+                this.channels(i) = this.cam.getChannels(i-1);
+                pixelFormat = [this.height(i) this.width(i) this.channels(i)];
+                if this.channels(i) == 1 % grayscale
+                    pixelFormat(3) = [];
+                end
+                format(end+1, :) = {'uint64' 1 sprintf('frame%d', i)}; %#ok<AGROW>
+                format(end+1, :) = {'double' 1 sprintf('timestamp%d', i)}; %#ok<AGROW>
+                format(end+1, :) = {'uint8' pixelFormat sprintf('pixels%d', i)}; %#ok<AGROW>
+            end
+            
+            path = char(this.cam.getBackingFile());
+            this.file = memmapfile(path, ...
+                'Offset', this.cam.getHeaderBytes(), ...
+                'Format', format, ...
+                'Repeat', this.cam.getNumSlots());
+            
+            % start retrieval
+            start(this.cam);
+        end
+        
+        function [images, frames, timestamps, skew] = getsnapshot(this)
+            %getsnapshot - acquires a single set of images. Returns cell
+            %arrays of images, frame numbers and timestamps, as well as
+            %the time between the first and last frame in [s].
+            slot = tryGetNextImageSlot(this.cam);
+            if slot < 0
+                cause = getError(this.cam);
+                stop(this.cam);
+                if ~isempty(cause)
+                    error('%s. Acquisition stopped.', char(cause.getMessage()));
+                end
+                error('Connection to video source was lost. Acquisition stopped.');
+            end
+            
+            % Copy the whole set while holding a single lock
+            data = this.file.Data(slot + 1);
+            numCams = numel(this.urls);
+            images = cell(1, numCams);
+            frames = zeros(1, numCams, 'uint64');
+            timestamps = zeros(1, numCams);
+            for i = 1:numCams
+                images{i} = data.(sprintf('pixels%d', i)) * 1;
+                frames(i) = data.(sprintf('frame%d', i));
+                timestamps(i) = data.(sprintf('timestamp%d', i));
+            end
+            skew = data.skew * 1;
+            tryReleaseImageLock(this.cam);
+        end
+    
+    end
+    
+    methods (Access = private)
+        function delete(this)
+            % destructor - frees resources
+            this.file = [];
+            stop(this.cam);
+        end
+    end
+
+end
@@ -0,0 +1,627 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class BackgroundFrameGrabberTest {
+
+    @Test
+    public void collectsStatistics() throws Exception {
+        Frame frame = randomFrame(64, 48, 3, 0);
+        Frame wrongChannels = randomFrame(64, 48, 1, 1);
+        TestFrameGrabber source = new TestFrameGrabber(frame, frame, null, wrongChannels);
+        source.grabDelayMs = 1;
+
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        grabber.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(grabber.tryGetNextImageSlot() >= 0);
+            }
+            grabber.tryReleaseImageLock();
+
+            FrameGrabberStatistics stats = grabber.getStatistics();
+            assertTrue(stats.getProducedFrames() >= 10);
+            assertEquals(10, stats.getConsumedFrames());
+            assertTrue(stats.getNullFrames() > 0);
+            assertTrue(stats.getSkippedFrames() > 0);
+            assertEquals(10, stats.getPublishToConsumeLatency().getCount());
+            assertTrue(stats.getGrabLatency().getCount() >= stats.getProducedFrames());
+            assertTrue(stats.getConversionLatency().getCount() >= stats.getProducedFrames());
+            assertTrue(stats.getFramesPerSecond() > 0);
+
+            // Statistics are available via JMX while the grabber is running
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> names = server.queryNames(new ObjectName("us.hebi.matlab.streaming:type=BackgroundFrameGrabber,name=*"), null);
+            assertEquals(1, names.size());
+            CompositeData composite = (CompositeData) server.getAttribute(names.iterator().next(), "Statistics");
+            assertTrue((Long) composite.get("producedFrames") >= 10);
+            assertTrue(((CompositeData) composite.get("conversionLatency")).containsKey("p99Ms"));
+
+        } finally {
+            grabber.stop();
+        }
+
+        ObjectName name = new ObjectName("us.hebi.matlab.streaming:type=BackgroundFrameGrabber,name=*");
+        assertEquals(0, ManagementFactory.getPlatformMBeanServer().queryNames(name, null).size());
+    }
+
+    @Test
+    public void queueDeliversAllFramesInOrder() throws Exception {
+        TestFrameGrabber source = new TestFrameGrabber(randomFrame(64, 48, 1, 0));
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, 4, DeliveryPolicy.QUEUE_BLOCK);
+        grabber.start();
+        try {
+            long lastFrame = -1;
+            for (int i = 0; i < 50; i++) {
+                int slot = grabber.tryGetNextImageSlot();
+                assertTrue(slot >= 0);
+                long frame = grabber.sharedMemory.clearSlotBuffer(slot).getLong();
+                if (lastFrame >= 0)
+                    assertEquals(lastFrame + 1, frame);
+                lastFrame = frame;
+
+                // Let the queue fill up while "processing" the frame
+                if (i % 10 == 0)
+                    Thread.sleep(20);
+            }
+            grabber.tryReleaseImageLock();
+            assertEquals(0, grabber.getStatistics().getDroppedFrames());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void lazyConversionOnlyConvertsRequestedFrames() throws Exception {
+        Frame[] frames = {randomFrame(64, 48, 1, 0), randomFrame(64, 48, 1, 1)};
+        byte[][] expected = new byte[frames.length][];
+        for (int i = 0; i < frames.length; i++) {
+            expected[i] = convert(new MatlabImageConverterGrayscale(64, 48), frames[i]);
+        }
+
+        TestFrameGrabber source = new TestFrameGrabber(frames);
+        source.grabDelayMs = 1;
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        grabber.setLazyConversion(true);
+        assertNotNull(grabber.lazyFrames.getFrame(0));
+        grabber.start();
+        try {
+            // Idle cameras only decode
+            Thread.sleep(50);
+            assertTrue(grabber.getStatistics().getGrabLatency().getCount() > 0);
+            assertEquals(0, grabber.getStatistics().getConversionLatency().getCount());
+
+            for (int i = 0; i < 5; i++) {
+                int slot = grabber.tryGetNextImageSlot();
+                assertTrue(slot >= 0);
+                ByteBuffer buffer = grabber.sharedMemory.clearSlotBuffer(slot);
+                long frameNumber = buffer.getLong();
+                buffer.getDouble();
+                buffer.position(buffer.position() + 16); // roi
+                byte[] actual = new byte[expected[0].length];
+                buffer.get(actual);
+                assertArrayEquals(expected[(int) ((frameNumber - 1) % frames.length)], actual);
+            }
+            grabber.tryReleaseImageLock();
+            assertEquals(5, grabber.getStatistics().getProducedFrames());
+
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void pipelinedConversionDeliversAllFramesInOrder() throws Exception {
+        Frame[] frames = {randomFrame(64, 48, 3, 0), randomFrame(64, 48, 3, 1), randomFrame(64, 48, 3, 2)};
+        byte[][] expected = new byte[frames.length][];
+        for (int i = 0; i < frames.length; i++) {
+            expected[i] = convert(new MatlabImageConverterBGR(64, 48), frames[i]);
+        }
+
+        TestFrameGrabber source = new TestFrameGrabber(frames);
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, 3, DeliveryPolicy.QUEUE_BLOCK);
+        grabber.setPipelinedConversion(true);
+        for (int i = 0; i < 2; i++) {
+            assertNotNull("Copies should be allocated before the acquisition starts", grabber.pipelineFrames.getFrame(i));
+        }
+        grabber.start();
+        try {
+            long lastFrame = -1;
+            for (int i = 0; i < 50; i++) {
+                int slot = grabber.tryGetNextImageSlot();
+                assertTrue(slot >= 0);
+                ByteBuffer buffer = grabber.sharedMemory.clearSlotBuffer(slot);
+                long frameNumber = buffer.getLong();
+                if (lastFrame >= 0)
+                    assertEquals(lastFrame + 1, frameNumber);
+                lastFrame = frameNumber;
+
+                // Frames get copied before the grabber reuses its memory
+                buffer.position(32);
+                byte[] actual = new byte[expected[0].length];
+                buffer.get(actual);
+                assertArrayEquals(expected[(int) ((frameNumber - 1) % frames.length)], actual);
+            }
+            grabber.tryReleaseImageLock();
+            assertEquals(0, grabber.getStatistics().getDroppedFrames());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void keepsHistoryOfRecentFrames() throws Exception {
+        Frame[] frames = new Frame[5];
+        byte[][] expected = new byte[frames.length][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = randomFrame(64, 48, 3, i);
+            expected[i] = convert(new MatlabImageConverterBGR(64, 48), frames[i]);
+        }
+
+        TestFrameGrabber source = new TestFrameGrabber(frames);
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, 3, DeliveryPolicy.QUEUE_BLOCK);
+        grabber.setHistoryLength(3);
+        grabber.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(grabber.tryGetNextImageSlot() >= 0);
+            }
+            grabber.tryReleaseImageLock();
+
+            long count = grabber.lockHistory();
+            try {
+                assertTrue(count >= 9); // the last frame gets added after it has been published
+                ByteBuffer memory = new RandomAccessFile(grabber.getHistoryFile(), "r").getChannel()
+                        .map(FileChannel.MapMode.READ_ONLY, 0, grabber.getHistoryFile().length())
+                        .order(ByteOrder.nativeOrder());
+                assertEquals(count, memory.getLong(0));
+
+                // Entries hold consecutive frames in ring order
+                int frameBytes = expected[0].length;
+                long newestFrame = memory.getLong(8 + (int) ((count - 1) % 3) * 8);
+                for (int age = 0; age < 3; age++) {
+                    int entry = (int) ((count - 1 - age) % 3);
+                    long frameNumber = memory.getLong(8 + entry * 8);
+                    assertEquals(newestFrame - age, frameNumber);
+
+                    byte[] actual = new byte[frameBytes];
+                    memory.position(grabber.getHistoryHeaderBytes() + entry * frameBytes);
+                    memory.get(actual);
+                    assertArrayEquals(expected[(int) ((frameNumber - 1) % frames.length)], actual);
+                }
+            } finally {
+                grabber.releaseHistory();
+            }
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void adaptsToResolutionChanges() throws Exception {
+        Frame small = randomFrame(64, 48, 3, 0);
+        Frame large = randomFrame(128, 96, 3, 1);
+        byte[] expectedSmall = convert(new MatlabImageConverterBGR(64, 48), small);
+        byte[] expectedLarge = convert(new MatlabImageConverterBGR(128, 96), large);
+
+        TestFrameGrabber source = new TestFrameGrabber(small);
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, 3, DeliveryPolicy.QUEUE_BLOCK);
+        grabber.setHistoryLength(2);
+        String initialFile = grabber.getBackingFile();
+        grabber.start();
+        try {
+            assertFrame(grabber, 64, 48, expectedSmall);
+            assertEquals(0, grabber.getGeneration());
+
+            // Larger frames move to a new file, and the old header points to the new generation. Readers
+            // have their own mapping, so they can still access the old header after Java closed it.
+            RandomAccessFile oldFile = new RandomAccessFile(initialFile, "r");
+            ByteBuffer oldHeader = oldFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, grabber.getHeaderBytes())
+                    .order(ByteOrder.nativeOrder());
+            oldFile.close();
+            int generationOffset = BackgroundFrameGrabber.SEQUENCE_OFFSET + 3 * 8 + 16;
+            source.frames = new Frame[]{large};
+            assertFrameEventually(grabber, 128, 96, expectedLarge);
+            assertEquals(1, grabber.getGeneration());
+            assertEquals(128, grabber.getWidth());
+            assertEquals(96, grabber.getHeight());
+            assertNotEquals(initialFile, grabber.getBackingFile());
+            assertFalse(new File(initialFile).exists());
+            assertEquals(1, oldHeader.getLong(generationOffset));
+
+            ByteBuffer header = grabber.sharedMemory.clearHeaderBuffer();
+            assertEquals(1, header.getLong(generationOffset));
+            assertEquals(128, header.getInt(generationOffset + 8));
+            assertEquals(96, header.getInt(generationOffset + 12));
+
+            // Smaller frames fit into the existing slots
+            String largeFile = grabber.getBackingFile();
+            source.frames = new Frame[]{small};
+            assertFrameEventually(grabber, 64, 48, expectedSmall);
+            assertEquals(2, grabber.getGeneration());
+            assertEquals(largeFile, grabber.getBackingFile());
+            assertEquals(0, grabber.getStatistics().getSkippedFrames());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void stopsWhileResolutionChanges() throws Exception {
+        // Every frame changes the geometry, so stop() keeps racing with the writer
+        Frame small = randomFrame(64, 48, 3, 0);
+        Frame large = randomFrame(128, 96, 3, 1);
+        for (int i = 0; i < 20; i++) {
+            TestFrameGrabber source = new TestFrameGrabber(small, large);
+            BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+            grabber.setHistoryLength(2);
+            grabber.start();
+            Thread.sleep(i % 5);
+            grabber.stop();
+            assertFalse(new File(grabber.getBackingFile()).exists());
+        }
+    }
+
+    /**
+     * Frames that were queued before the change get discarded, but the reader
+     * may still get the frame that it was already waiting for.
+     */
+    private static void assertFrameEventually(BackgroundFrameGrabber grabber, int width, int height, byte[] expected) {
+        for (int i = 0; i < 10; i++) {
+            int slot = grabber.tryGetNextImageSlot();
+            assertTrue(slot >= 0);
+            ByteBuffer buffer = grabber.sharedMemory.clearSlotBuffer(slot);
+            if (buffer.getInt(24) == width) {
+                assertSlot(buffer, width, height, expected);
+                grabber.tryReleaseImageLock();
+                return;
+            }
+        }
+        fail("Dimensions did not change");
+    }
+
+    private static void assertFrame(BackgroundFrameGrabber grabber, int width, int height, byte[] expected) {
+        int slot = grabber.tryGetNextImageSlot();
+        assertTrue(slot >= 0);
+        assertSlot(grabber.sharedMemory.clearSlotBuffer(slot), width, height, expected);
+        grabber.tryReleaseImageLock();
+    }
+
+    private static void assertSlot(ByteBuffer buffer, int width, int height, byte[] expected) {
+        assertEquals(width, buffer.getInt(24));
+        assertEquals(height, buffer.getInt(28));
+        byte[] actual = new byte[expected.length];
+        buffer.position(32);
+        buffer.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void opensSourcesConcurrently() throws Exception {
+        int numCams = 3;
+        long startDelayMs = 200;
+        Future<?>[] opening = new Future<?>[numCams];
+        long start = System.nanoTime();
+        for (int i = 0; i < numCams; i++) {
+            TestFrameGrabber source = new TestFrameGrabber(randomFrame(64, 48, 3, i));
+            source.startDelayMs = startDelayMs;
+            opening[i] = BackgroundFrameGrabber.openAsync(source, 3, DeliveryPolicy.LATEST, "auto", BackingStore.getDefault());
+        }
+        BackgroundFrameGrabber[] grabbers = new BackgroundFrameGrabber[numCams];
+        try {
+            for (int i = 0; i < numCams; i++) {
+                grabbers[i] = (BackgroundFrameGrabber) opening[i].get(5, TimeUnit.SECONDS);
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("took " + elapsedMs + " ms", elapsedMs < numCams * startDelayMs);
+
+            for (BackgroundFrameGrabber grabber : grabbers) {
+                assertEquals(64, grabber.getWidth());
+                assertTrue(grabber.getStatistics().getTimeToFirstFrameMs() >= startDelayMs);
+            }
+        } finally {
+            for (BackgroundFrameGrabber grabber : grabbers) {
+                if (grabber != null)
+                    grabber.stop();
+            }
+        }
+    }
+
+    @Test
+    public void waitsForFirstValidFrame() throws Exception {
+        // e.g. devices that need to warm up or streams that start with non-video packets
+        TestFrameGrabber source = new TestFrameGrabber(null, null, null, randomFrame(64, 48, 1, 0));
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        try {
+            assertEquals(64, grabber.getWidth());
+            assertEquals(48, grabber.getHeight());
+            assertEquals(1, grabber.getChannels());
+            assertTrue(grabber.getStatistics().getTimeToFirstFrameMs() > 0);
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void reconnectsAfterSourceGetsKilled() throws Exception {
+        FrameServer server = new FrameServer(64 * 48, 5);
+        server.start();
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(new SocketFrameGrabber(server.getPort(), 64, 48));
+        grabber.setStallTimeout(1000);
+        grabber.setReconnectBackoff(10, 50);
+        String file = grabber.getBackingFile();
+        grabber.start();
+        try {
+            assertTrue(grabber.tryGetNextImageSlot() >= 0);
+            grabber.tryReleaseImageLock();
+            assertEquals(ConnectionState.CONNECTED, grabber.getConnectionState());
+
+            // Failed attempts keep getting retried while the source is down
+            server.kill();
+            assertTrue(awaitState(grabber, ConnectionState.RECONNECTING, 2000));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (grabber.getStatistics().getReconnects() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(grabber.getStatistics().getReconnects() >= 3);
+            assertEquals(ConnectionState.RECONNECTING, grabber.getConnectionState());
+            assertNotNull(grabber.getConnectionError());
+
+            // Frames continue in the same shared memory once the source is back
+            server.start();
+            assertTrue(awaitState(grabber, ConnectionState.CONNECTED, 2000));
+            long produced = grabber.getStatistics().getProducedFrames();
+            for (int i = 0; i < 3; i++) {
+                assertTrue(grabber.tryGetNextImageSlot() >= 0);
+            }
+            grabber.tryReleaseImageLock();
+            assertTrue(grabber.getStatistics().getProducedFrames() > produced);
+            assertEquals(file, grabber.getBackingFile());
+            assertEquals(0, grabber.getGeneration());
+        } finally {
+            grabber.stop();
+            server.kill();
+        }
+        assertEquals(ConnectionState.STOPPED, grabber.getConnectionState());
+    }
+
+    @Test
+    public void restartsStalledSource() throws Exception {
+        Frame frame = randomFrame(64, 48, 1, 0);
+        TestFrameGrabber source = new TestFrameGrabber(frame);
+        source.grabDelayMs = 1;
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        grabber.setStallTimeout(200);
+        grabber.setReconnectBackoff(10, 10);
+        grabber.start();
+        try {
+            assertTrue(grabber.tryGetNextImageSlot() >= 0);
+            grabber.tryReleaseImageLock();
+
+            // A source that only returns null frames gets reported and restarted
+            source.frames = new Frame[]{null};
+            assertTrue(awaitState(grabber, ConnectionState.STALLED, 1000));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (grabber.getStatistics().getReconnects() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(grabber.getStatistics().getReconnects() > 0);
+
+            source.frames = new Frame[]{frame};
+            assertTrue(awaitState(grabber, ConnectionState.CONNECTED, 1000));
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    private static boolean awaitState(BackgroundFrameGrabber grabber, ConnectionState state, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (grabber.getConnectionState() != state) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @Test
+    public void waitsForFrameAfterSpecifiedFrame() throws Exception {
+        TestFrameGrabber source = new TestFrameGrabber(randomFrame(64, 48, 1, 0));
+        source.grabDelayMs = 5;
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        grabber.setWaitStrategy(WaitStrategy.SPIN_THEN_PARK);
+        grabber.start();
+        try {
+            int slot = grabber.waitForFrameAfter(0, 1000);
+            assertTrue(slot >= 0);
+            long frameNumber = grabber.sharedMemory.clearSlotBuffer(slot).getLong();
+
+            // Frames that have been read before are fine as long as they are newer
+            long target = frameNumber + 3;
+            slot = grabber.waitForFrameAfter(target, 1000);
+            assertTrue(slot >= 0);
+            assertTrue(grabber.sharedMemory.clearSlotBuffer(slot).getLong() > target);
+
+            // Frames that don't arrive in time
+            assertEquals(-1, grabber.waitForFrameAfter(Long.MAX_VALUE - 1, 20));
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    @Test
+    public void acquisitionLoopDoesNotAllocate() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        for (String format : new String[]{"auto", "rgb8", "gray8", "single", "ycbcr8"}) {
+            assertNoAllocations(allocations, format, 3, false, false);
+        }
+        assertNoAllocations(allocations, "mono16", 1, false, false);
+        assertNoAllocations(allocations, "auto", 3, true, false);
+        assertNoAllocations(allocations, "gray8", 3, true, false);
+        assertNoAllocations(allocations, "auto", 3, false, true);
+
+        // Queues cycle through all slots, so the views of every plane of every slot need to stay cached
+        for (String format : new String[]{"auto", "rgb8", "single", "ycbcr8"}) {
+            assertNoAllocations(allocations, format, 3, false, false, 12, DeliveryPolicy.QUEUE_DROP_OLDEST);
+        }
+        assertNoAllocations(allocations, "auto", 3, true, false, 12, DeliveryPolicy.QUEUE_DROP_OLDEST);
+    }
+
+    private static void assertNoAllocations(com.sun.management.ThreadMXBean allocations, String format, int channels,
+                                            boolean regionOfInterest, boolean history) throws Exception {
+        assertNoAllocations(allocations, format, channels, regionOfInterest, history, 3, DeliveryPolicy.LATEST);
+    }
+
+    /**
+     * Measures the memory that the acquisition thread allocates once all caches have been filled.
+     * There is no reader, so contended locks can't allocate wait nodes either. Code that hasn't been
+     * compiled yet may allocate objects that escape analysis removes later, so the loop gets a few
+     * windows to reach the steady state. Allocations per frame would show up in every window.
+     */
+    private static void assertNoAllocations(com.sun.management.ThreadMXBean allocations, String format, int channels,
+                                            boolean regionOfInterest, boolean history, int numSlots,
+                                            DeliveryPolicy policy) throws Exception {
+        // Alternate between buffers like decoders do
+        TestFrameGrabber source = new TestFrameGrabber(randomFrame(64, 48, channels, 0), randomFrame(64, 48, channels, 1));
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, numSlots, policy, format);
+        if (regionOfInterest)
+            grabber.setRegionOfInterest(10, 5, 20, 10);
+        if (history)
+            grabber.setHistoryLength(4);
+        grabber.start();
+        try {
+            Thread thread = findThread(grabber.threadName);
+            awaitProducedFrames(grabber, 2000);
+
+            long bytes = -1;
+            long frames = 0;
+            for (int window = 0; window < 20 && bytes != 0; window++) {
+                frames = grabber.getStatistics().getProducedFrames();
+                bytes = allocations.getThreadAllocatedBytes(thread.getId());
+                awaitProducedFrames(grabber, frames + 2000);
+                bytes = allocations.getThreadAllocatedBytes(thread.getId()) - bytes;
+                frames = grabber.getStatistics().getProducedFrames() - frames;
+            }
+
+            assertEquals(String.format("Allocated bytes for '%s' (roi=%s, history=%s, slots=%d, %s) over %d frames",
+                    format, regionOfInterest, history, numSlots, policy, frames), 0, bytes);
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    private static Thread findThread(String name) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals(name))
+                    return thread;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Thread did not start: " + name);
+    }
+
+    private static void awaitProducedFrames(BackgroundFrameGrabber grabber, long frames) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (grabber.getStatistics().getProducedFrames() < frames) {
+            assertTrue("Timed out waiting for frames", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void selectsFusedConverterOnlyForLargeFrames() {
+        assertTrue(BackgroundFrameGrabber.createConverter(1920, 1080, 3, false) instanceof MatlabImageConverterBGR);
+        assertTrue(BackgroundFrameGrabber.createConverter(3840, 2160, 3, false) instanceof MatlabImageConverterFusedBGR);
+        assertTrue(BackgroundFrameGrabber.createConverter(3840, 2160, 1, false) instanceof MatlabImageConverterGrayscale);
+    }
+
+    @Test
+    public void convertsMovingRegionOfInterest() throws Exception {
+        assertRegionOfInterest(new MatlabImageConverterBGR(64, 48), randomFrame(64, 48, 3, 0));
+        assertRegionOfInterest(new MatlabImageConverterGrayscale(64, 48), randomFrame(64, 48, 1, 1));
+    }
+
+    private static void assertRegionOfInterest(MatlabImageConverter converter, Frame frame) throws Exception {
+        byte[] full = convert(converter, frame);
+        int channels = frame.imageChannels;
+
+        TestFrameGrabber source = new TestFrameGrabber(frame);
+        source.grabDelayMs = 1;
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        grabber.start();
+        try {
+            int width = 20;
+            int height = 10;
+            for (int x = 0; x <= 44; x += 11) {
+                int y = x / 2;
+                grabber.setRegionOfInterest(x, y, width, height);
+                ByteBuffer buffer = awaitRegion(grabber, x, y);
+                assertEquals(width, buffer.getInt());
+                assertEquals(height, buffer.getInt());
+
+                // Compare against the same region of a full frame conversion
+                for (int c = 0; c < channels; c++) {
+                    for (int col = 0; col < width; col++) {
+                        for (int row = 0; row < height; row++) {
+                            int expected = full[c * 64 * 48 + (x + col) * 48 + y + row];
+                            assertEquals(expected, buffer.get());
+                        }
+                    }
+                }
+            }
+
+            grabber.clearRegionOfInterest();
+            ByteBuffer buffer = awaitRegion(grabber, 0, 0);
+            assertEquals(64, buffer.getInt());
+            assertEquals(48, buffer.getInt());
+            grabber.tryReleaseImageLock();
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Frames that were already being converted may still contain the previous region
+     *
+     * @return slot buffer positioned after the x and y of the region
+     */
+    private static ByteBuffer awaitRegion(BackgroundFrameGrabber grabber, int x, int y) {
+        for (int i = 0; i < 10; i++) {
+            ByteBuffer buffer = grabber.sharedMemory.clearSlotBuffer(grabber.tryGetNextImageSlot());
+            buffer.position(16);
+            if (buffer.getInt() == x && buffer.getInt() == y)
+                return buffer;
+        }
+        throw new AssertionError("Region did not get applied");
+    }
+
+}
@@ -0,0 +1,214 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class BackgroundRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesPackedFramesIntoSegments() throws Exception {
+        // 30x3 bytes per row get padded to 96 bytes, so the recorder needs to remove the padding
+        Frame[] frames = new Frame[5];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = randomFrame(30, 20, 3, i);
+        }
+        assertTrue(frames[0].imageStride > 30 * 3);
+
+        File directory = new File(folder.getRoot(), "recording");
+        RawSegmentRecorder recorder = new RawSegmentRecorder(directory, "cam", 2, frames.length);
+        recorder.start(frames[0].image[0], "test-record");
+        for (int i = 0; i < frames.length; i++) {
+            recorder.offer(frames[i], 10 + i, 0.5 * i);
+        }
+        recorder.stop();
+        assertNull(recorder.getError());
+        assertEquals(frames.length, recorder.getRecordedFrames());
+        assertEquals(0, recorder.getDroppedFrames());
+
+        // The last segment only holds a single frame
+        int frameBytes = 30 * 20 * 3;
+        assertEquals(2 * frameBytes, new File(directory, "cam-0000.raw").length());
+        assertEquals(2 * frameBytes, new File(directory, "cam-0001.raw").length());
+        assertEquals(frameBytes, new File(directory, "cam-0002.raw").length());
+
+        List<String> index = readLines(new File(directory, "cam.csv"));
+        assertEquals(frames.length + 1, index.size());
+        assertEquals("frame,timestamp,segment,offset,width,height,channels,depth", index.get(0));
+        assertEquals("14,2.000000,2,0,30,20,3,8", index.get(5));
+
+        for (int i = 0; i < frames.length; i++) {
+            String[] entry = index.get(i + 1).split(",");
+            assertEquals(String.valueOf(10 + i), entry[0]);
+            File segment = new File(directory, String.format("cam-%04d.raw", Integer.parseInt(entry[2])));
+            byte[] actual = readBytes(segment, Integer.parseInt(entry[3]), frameBytes);
+            assertArrayEquals("frame " + i, packRows(frames[i]), actual);
+        }
+    }
+
+    @Test
+    public void dropsFramesInsteadOfWaitingForSlowRecorder() throws Exception {
+        final long writeDelayMs = 20;
+        BackgroundRecorder recorder = new BackgroundRecorder(2) {
+            @Override
+            protected void open(Frame frame) {
+            }
+
+            @Override
+            protected void write(Frame frame, long frameNumber, double timestamp) throws Exception {
+                Thread.sleep(writeDelayMs);
+            }
+
+            @Override
+            protected void close() {
+            }
+        };
+
+        Frame frame = randomFrame(64, 48, 3, 0);
+        recorder.start(frame.image[0], "test-record");
+        int numFrames = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < numFrames; i++) {
+            recorder.offer(frame, i, i);
+        }
+        long offerMs = (System.nanoTime() - start) / 1000000;
+        recorder.stop();
+
+        assertTrue("offering frames took " + offerMs + " ms", offerMs < numFrames * writeDelayMs / 2);
+        assertTrue(recorder.getDroppedFrames() > 0);
+        assertTrue(recorder.getRecordedFrames() >= 2);
+        assertEquals(numFrames, recorder.getRecordedFrames() + recorder.getDroppedFrames());
+        assertFalse(recorder.isRecording());
+    }
+
+    @Test
+    public void countsFramesOfferedDuringStop() throws Exception {
+        final Frame frame = randomFrame(64, 48, 3, 0);
+        for (int run = 0; run < 5; run++) {
+            final BackgroundRecorder recorder = new BackgroundRecorder(4) {
+                @Override
+                protected void open(Frame frame) {
+                }
+
+                @Override
+                protected void write(Frame frame, long frameNumber, double timestamp) {
+                }
+
+                @Override
+                protected void close() {
+                }
+            };
+            recorder.start(frame.image[0], "test-record");
+
+            // Keeps offering while the recorder stops, like an acquisition thread that hasn't noticed the detach yet
+            final AtomicBoolean stopped = new AtomicBoolean(false);
+            final AtomicLong offered = new AtomicLong(0);
+            Thread acquisition = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (long i = 0; !stopped.get(); i++) {
+                            recorder.offer(frame, i, i);
+                            offered.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            acquisition.start();
+            Thread.sleep(2);
+            recorder.stop();
+            stopped.set(true);
+            acquisition.join();
+
+            assertEquals(offered.get(), recorder.getRecordedFrames() + recorder.getDroppedFrames());
+        }
+    }
+
+    @Test
+    public void recordsGrabbedFrames() throws Exception {
+        TestFrameGrabber source = new TestFrameGrabber(randomFrame(64, 48, 3, 0));
+        source.grabDelayMs = 1;
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source);
+        RawSegmentRecorder recorder = new RawSegmentRecorder(folder.getRoot(), "cam", 10, 4);
+        grabber.startRecording(recorder);
+        grabber.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(grabber.tryGetNextImageSlot() >= 0);
+            }
+            grabber.tryReleaseImageLock();
+            assertSame(recorder, grabber.stopRecording());
+        } finally {
+            grabber.stop();
+        }
+        assertNull(recorder.getError());
+        assertTrue(recorder.getRecordedFrames() >= 5);
+        assertNull(grabber.stopRecording());
+    }
+
+    private static byte[] packRows(Frame frame) {
+        int rowBytes = frame.imageWidth * frame.imageChannels;
+        ByteBuffer pixels = ((ByteBuffer) frame.image[0]).duplicate();
+        byte[] packed = new byte[rowBytes * frame.imageHeight];
+        for (int row = 0; row < frame.imageHeight; row++) {
+            pixels.position(row * frame.imageStride);
+            pixels.get(packed, row * rowBytes, rowBytes);
+        }
+        return packed;
+    }
+
+    private static byte[] readBytes(File file, long offset, int length) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] data = new byte[length];
+            assertEquals(offset, in.skip(offset));
+            int read = 0;
+            while (read < length) {
+                int n = in.read(data, read, length - read);
+                assertTrue(n > 0);
+                read += n;
+            }
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            List<String> lines = new ArrayList<String>();
+            String line;
+            while ((line = reader.readLine()) != null)
+                lines.add(line);
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+}
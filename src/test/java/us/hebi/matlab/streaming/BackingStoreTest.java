@@ -0,0 +1,81 @@
+package us.hebi.matlab.streaming;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class BackingStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesNames() {
+        assertEquals("cwd", BackingStore.forName("cwd").getName());
+        assertEquals("tmpfs", BackingStore.forName("TMPFS").getName());
+        assertEquals("hugepages", BackingStore.forName("hugepages").getName());
+        assertEquals(new File("/mnt/ramdisk").getPath(), BackingStore.forName("/mnt/ramdisk").getName());
+        assertTrue(BackingStore.tmpfs().withPreTouch(true).isPreTouch());
+        assertFalse(BackingStore.tmpfs().isPreTouch());
+    }
+
+    @Test
+    public void allocatesInRequestedDirectory() throws Exception {
+        SharedMemory memory = SharedMemory.allocate(16, 1000, 3, BackingStore.directory(folder.getRoot()).withPreTouch(true));
+        try {
+            assertEquals(folder.getRoot(), memory.getBackingFile().getParentFile());
+            assertEquals(folder.getRoot().getPath(), memory.getBackingStore().getName());
+            assertTrue(memory.getBackingStore().isPreTouch());
+
+            // Files get rounded up to full pages, but views only cover the requested size
+            assertEquals(4096, memory.getBackingFile().length());
+            assertEquals(3016, memory.clearBuffer().remaining());
+            ByteBuffer slot = memory.clearSlotBuffer(2);
+            assertEquals(1000, slot.remaining());
+            slot.putLong(0, 42);
+            assertEquals(42, memory.clearBuffer().getLong(16 + 2000));
+        } finally {
+            memory.close();
+        }
+        assertFalse(memory.getBackingFile().exists());
+    }
+
+    @Test
+    public void fallsBackToAvailableStore() throws Exception {
+        File missing = new File(folder.getRoot(), "missing");
+        BackingStore expected = new File("/dev/shm").canWrite() ? BackingStore.tmpfs() : BackingStore.workingDirectory();
+        SharedMemory memory = SharedMemory.allocate(0, 100, 1, BackingStore.directory(missing));
+        try {
+            assertEquals(expected.getName(), memory.getBackingStore().getName());
+            assertTrue(memory.getBackingFile().isAbsolute());
+            assertTrue(memory.getBackingFile().exists());
+        } finally {
+            memory.close();
+        }
+    }
+
+    @Test
+    public void fallsBackIfHugePagesAreNotAvailable() throws Exception {
+        SharedMemory memory = SharedMemory.allocate(0, 100, 1, BackingStore.hugePages());
+        try {
+            String name = memory.getBackingStore().getName();
+            if (name.equals("hugepages")) {
+                assertEquals(BackingStore.findMount("hugetlbfs"), memory.getBackingFile().getParentFile());
+            } else {
+                assertTrue(name, name.equals("tmpfs") || name.equals("cwd"));
+            }
+        } finally {
+            memory.close();
+        }
+    }
+
+}
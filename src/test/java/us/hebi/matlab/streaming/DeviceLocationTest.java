@@ -2,6 +2,11 @@ package us.hebi.matlab.streaming;
 
 import org.junit.Test;
 
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 
 /**
@@ -64,6 +69,69 @@ public class DeviceLocationTest {
         assertFalse(new DeviceLocation("/dev/usb0").hasUrlScheme("http"));
     }
 
+    @Test
+    public void getPort() throws Exception {
+        assertEquals(554, new DeviceLocation("rtsp://127.0.0.2/axis-media/media.amp").getPort());
+        assertEquals(8554, new DeviceLocation("rtsp://127.0.0.4:8554/live/ch00_0").getPort());
+        assertEquals(80, new DeviceLocation("http://127.0.0.1/axis-cgi/mjpg/video.cgi").getPort());
+        assertEquals(443, new DeviceLocation("https://github.com/video").getPort());
+        assertEquals(554, new DeviceLocation("rtsp://user:pw@10.10.10.1/video").getPort());
+        assertEquals(-1, new DeviceLocation("udp://@239.0.0.1:9999").getPort());
+        assertEquals(-1, new DeviceLocation("/dev/video0").getPort());
+        assertEquals(-1, new DeviceLocation(1).getPort());
+    }
+
+    @Test
+    public void probesTcpPort() throws Exception {
+        DeviceLocation.clearReachabilityCache();
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        DeviceLocation location = new DeviceLocation("rtsp://127.0.0.1:" + server.getLocalPort() + "/video");
+        try {
+            assertTrue(location.isReachableUrl(1000));
+        } finally {
+            server.close();
+        }
+
+        // Recent results get reused
+        assertTrue(location.isReachableUrl(1000));
+        DeviceLocation.clearReachabilityCache();
+        assertFalse(location.isReachableUrl(1000));
+    }
+
+    @Test
+    public void probesLocationsWithoutHost() throws Exception {
+        assertFalse(new DeviceLocation("rtsp:/video").probeReachability(100).get()); // no authority
+        assertFalse(new DeviceLocation("rtsp://cam_1/video").probeReachability(100).get()); // not a valid host name
+        assertFalse(new DeviceLocation("rtsp://cam_1/video").isReachableUrl(100));
+    }
+
+    @Test
+    public void probesLocationsInParallel() throws Exception {
+        DeviceLocation.clearReachabilityCache();
+        int numCams = 10;
+        ServerSocket[] servers = new ServerSocket[numCams];
+        Future<?>[] probes = new Future<?>[numCams];
+        try {
+            for (int i = 0; i < numCams; i++) {
+                servers[i] = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+                String url = "http://127.0.0.1:" + servers[i].getLocalPort() + "/mjpeg";
+                probes[i] = new DeviceLocation(url).probeReachability(1000);
+            }
+            for (int i = 0; i < numCams; i++) {
+                assertEquals(Boolean.TRUE, probes[i].get(1000, TimeUnit.MILLISECONDS));
+            }
+
+            // Probes of the same address share a result
+            String url = "rtsp://127.0.0.1:" + servers[0].getLocalPort() + "/other";
+            assertSame(new DeviceLocation(url).probeReachability(1000), probes[0]);
+        } finally {
+            for (ServerSocket server : servers) {
+                if (server != null)
+                    server.close();
+            }
+        }
+    }
+
     /**
      * Mostly omitted for now because I'm not sure how to best check it.
      * new File(url) apparently doesn't complain for web-urls and
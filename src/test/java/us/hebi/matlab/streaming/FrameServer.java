@@ -0,0 +1,96 @@
+package us.hebi.matlab.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Local stand-in for a network camera that streams raw frames to every client that
+ * connects. Frames are filled with a counter, so clients can tell them apart. The
+ * server can be killed and restarted on the same port to simulate a dropped camera.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class FrameServer {
+
+    FrameServer(int frameBytes, long frameIntervalMs) {
+        this.frameBytes = frameBytes;
+        this.frameIntervalMs = frameIntervalMs;
+    }
+
+    /**
+     * Starts accepting clients on the previous port, or on a free port the first time
+     */
+    synchronized void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress("127.0.0.1", port));
+        port = serverSocket.getLocalPort();
+        final ServerSocket server = serverSocket;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (!server.isClosed()) {
+                        stream(server.accept());
+                    }
+                } catch (IOException e) {
+                    // Server got killed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.setName("FrameServer-" + port);
+        thread.start();
+    }
+
+    private void stream(Socket client) {
+        synchronized (this) {
+            this.client = client;
+        }
+        byte[] frame = new byte[frameBytes];
+        try {
+            OutputStream output = client.getOutputStream();
+            for (int i = 0; !client.isClosed(); i++) {
+                Arrays.fill(frame, (byte) i);
+                output.write(frame);
+                output.flush();
+                Thread.sleep(frameIntervalMs);
+            }
+        } catch (IOException e) {
+            // Client disconnected
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Closes the server and all connections like a camera that lost power
+     */
+    synchronized void kill() throws IOException {
+        serverSocket.close();
+        if (client != null)
+            client.close();
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    private final int frameBytes;
+    private final long frameIntervalMs;
+    private ServerSocket serverSocket;
+    private Socket client;
+    private int port = 0;
+
+}
@@ -0,0 +1,225 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Checks the selected grabbers and options, and opens local stand-in sources with
+ * every profile in case the FFmpeg binaries are available for this platform.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class GrabberFactoryTest {
+
+    @Test
+    public void selectsGrabberByLocation() throws Exception {
+        File file = createMjpegFile();
+        try {
+            assertTrue(create(1, "default") instanceof FixedOpenCVFrameGrabber);
+            assertTrue(create("/dev/video0", "default") instanceof FixedOpenCVFrameGrabber);
+            assertTrue(create(file.getPath(), "default") instanceof FFmpegFrameGrabber);
+            assertTrue(create("rtsp://127.0.0.1/media", "default") instanceof FFmpegFrameGrabber);
+            assertEquals("mjpeg", create("http://127.0.0.1/video.cgi", "default").getFormat());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void appliesProfiles() throws Exception {
+        FFmpegFrameGrabber grabber = (FFmpegFrameGrabber) create("rtsp://127.0.0.1/media", "default");
+        assertEquals("udp", grabber.getOption("rtsp_transport"));
+        assertEquals("0", grabber.getOption("max_delay"));
+        assertNull(grabber.getOption("fflags"));
+
+        grabber = (FFmpegFrameGrabber) create("rtsp://127.0.0.1/media", "Lowest-Latency");
+        assertEquals("udp", grabber.getOption("rtsp_transport"));
+        assertEquals("nobuffer", grabber.getOption("fflags"));
+        assertEquals("1", grabber.getVideoOption("threads"));
+
+        grabber = (FFmpegFrameGrabber) create("rtsp://127.0.0.1/media", "max-throughput");
+        assertEquals("tcp", grabber.getOption("rtsp_transport"));
+        assertEquals("auto", grabber.getVideoOption("threads"));
+
+        grabber = (FFmpegFrameGrabber) create("http://127.0.0.1/video.cgi", "fast-start");
+        assertNull(grabber.getOption("rtsp_transport"));
+        assertEquals("32768", grabber.getOption("probesize"));
+
+        try {
+            create("rtsp://127.0.0.1/media", "fastest");
+            fail("Expected unknown profile to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void negotiatesGrayFramesForGrayFormats() throws Exception {
+        FrameGrabber grabber = create("rtsp://127.0.0.1/media", "default");
+        assertFalse(GrabberFactory.negotiatePixelFormat(grabber, StandardOutputFormat.RGB8));
+        assertFalse(GrabberFactory.negotiatePixelFormat(grabber, StandardOutputFormat.AUTO));
+        assertEquals(FrameGrabber.ImageMode.COLOR, grabber.getImageMode());
+
+        assertTrue(GrabberFactory.negotiatePixelFormat(grabber, StandardOutputFormat.GRAY8));
+        assertEquals(FrameGrabber.ImageMode.GRAY, grabber.getImageMode());
+        assertTrue(GrabberFactory.negotiatePixelFormat(create("rtsp://127.0.0.1/media", "default"), StandardOutputFormat.MONO16));
+
+        // Explicit settings and OpenCV devices stay as they are
+        grabber = create("rtsp://127.0.0.1/media", "default");
+        grabber.setImageMode(FrameGrabber.ImageMode.RAW);
+        assertFalse(GrabberFactory.negotiatePixelFormat(grabber, StandardOutputFormat.GRAY8));
+        grabber = create("rtsp://127.0.0.1/media", "default");
+        grabber.setImageMode(FrameGrabber.ImageMode.COLOR);
+        assertFalse(GrabberFactory.negotiatePixelFormat(grabber, StandardOutputFormat.GRAY8));
+        assertEquals(FrameGrabber.ImageMode.COLOR, grabber.getImageMode());
+        assertFalse(GrabberFactory.negotiatePixelFormat(new FFmpegFrameGrabber("rtsp://127.0.0.1/media"), StandardOutputFormat.GRAY8));
+        grabber = create(1, "default");
+        assertFalse(GrabberFactory.negotiatePixelFormat(grabber, StandardOutputFormat.GRAY8));
+        assertEquals(FrameGrabber.ImageMode.COLOR, grabber.getImageMode());
+    }
+
+    @Test
+    public void decodesGrayFramesWithoutColorConversion() throws Exception {
+        assumeTrue(isFFmpegAvailable());
+        File file = createMjpegFile();
+        try {
+            FrameGrabber source = create(file.getPath(), "default");
+            BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, 3, DeliveryPolicy.LATEST, "gray8");
+            try {
+                assertEquals(FrameGrabber.ImageMode.GRAY, source.getImageMode());
+                assertEquals(1, grabber.getChannels());
+                assertEquals(width, grabber.getWidth());
+            } finally {
+                grabber.stop();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void opensLocalFileWithAllProfiles() throws Exception {
+        assumeTrue(isFFmpegAvailable());
+        File file = createMjpegFile();
+        try {
+            for (GrabberProfile profile : GrabberProfile.values()) {
+                assertGrabsFrame(GrabberFactory.createGrabber(new DeviceLocation(file.getPath()), profile));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void opensLocalHttpStreamWithAllProfiles() throws Exception {
+        assumeTrue(isFFmpegAvailable());
+        final ServerSocket server = new ServerSocket(0);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serveMjpeg(server);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getLocalPort() + "/video.mjpg";
+            for (GrabberProfile profile : GrabberProfile.values()) {
+                assertGrabsFrame(GrabberFactory.createGrabber(new DeviceLocation(url), profile));
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    private static FrameGrabber create(Object uri, String profile) throws Exception {
+        return GrabberFactory.createGrabber(uri, profile);
+    }
+
+    private static void assertGrabsFrame(FrameGrabber grabber) throws Exception {
+        grabber.setTimeout(5000);
+        grabber.start();
+        try {
+            Frame frame = grabber.grabFrame();
+            assertNotNull(frame);
+            assertEquals(width, frame.imageWidth);
+            assertEquals(height, frame.imageHeight);
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    private static boolean isFFmpegAvailable() {
+        try {
+            FFmpegFrameGrabber.tryLoad();
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Motion JPEG is just a sequence of JPEG images
+     */
+    private static byte[] createMjpeg(int numFrames) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < numFrames; i++) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            image.setRGB(i % width, 0, 0xFFFFFF);
+            ImageIO.write(image, "jpeg", out);
+        }
+        return out.toByteArray();
+    }
+
+    private static File createMjpegFile() throws IOException {
+        File file = File.createTempFile("hebicam", ".mjpeg");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(createMjpeg(10));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Stand-in for an http camera that sends a continuous stream of images to every client
+     */
+    private static void serveMjpeg(ServerSocket server) {
+        try {
+            byte[] stream = createMjpeg(10);
+            while (!server.isClosed()) {
+                Socket client = server.accept();
+                try {
+                    OutputStream out = client.getOutputStream();
+                    out.write("HTTP/1.0 200 OK\r\nContent-Type: video/x-motion-jpeg\r\n\r\n".getBytes("US-ASCII"));
+                    for (int i = 0; i < 100; i++) {
+                        out.write(stream);
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    // client disconnected
+                } finally {
+                    client.close();
+                }
+            }
+        } catch (IOException e) {
+            // server closed
+        }
+    }
+
+    private static final int width = 64;
+    private static final int height = 48;
+
+}
@@ -0,0 +1,46 @@
+package us.hebi.matlab.streaming;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverAllValues() {
+        int previous = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = LatencyHistogram.getBucket(value);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(value < LatencyHistogram.getUpperBound(bucket));
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.NUM_BUCKETS - 1, LatencyHistogram.getBucket(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.getUpperBound(LatencyHistogram.NUM_BUCKETS - 1));
+    }
+
+    @Test
+    public void percentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000000L); // 1-1000 ms
+        }
+
+        LatencyStatistics stats = histogram.snapshot();
+        assertEquals(1000, stats.getCount());
+        assertEquals(500.5, stats.getMeanMs(), 1E-9);
+        assertEquals(1000, stats.getMaxMs(), 1E-9);
+        assertEquals(500, stats.getP50Ms(), 500 * 0.25);
+        assertEquals(990, stats.getP99Ms(), 990 * 0.25);
+        assertEquals(1000, stats.getPercentileMs(100), 1E-9);
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getP99Ms(), 0);
+    }
+
+}
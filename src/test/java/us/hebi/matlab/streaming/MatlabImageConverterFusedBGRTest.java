@@ -0,0 +1,49 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class MatlabImageConverterFusedBGRTest {
+
+    @Test
+    public void matchesOpenCvConverter() throws Exception {
+        assertSameOutput(640, 480);
+        assertSameOutput(33, 17); // padded rows
+        assertSameOutput(300, 2 * ColumnTransposer.BLOCK_ROWS + 1); // partial block
+        assertSameOutput(1, 1);
+    }
+
+    @Test
+    public void layoutIsPlanarColumnMajorRgb() throws Exception {
+        int width = 3;
+        int height = 2;
+        Frame frame = randomFrame(width, height, 3, 0);
+        byte[] actual = convert(new MatlabImageConverterFusedBGR(width, height), frame);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int c = 0; c < 3; c++) {
+                    byte expected = ((ByteBuffer) frame.image[0]).get(y * frame.imageStride + 3 * x + (2 - c));
+                    assertEquals(expected, actual[c * width * height + x * height + y]);
+                }
+            }
+        }
+    }
+
+    private static void assertSameOutput(int width, int height) {
+        Frame frame = randomFrame(width, height, 3, width * 31 + height);
+        byte[] expected = convert(new MatlabImageConverterBGR(width, height), frame);
+        byte[] actual = convert(new MatlabImageConverterFusedBGR(width, height), frame);
+        assertArrayEquals(width + "x" + height, expected, actual);
+    }
+
+}
@@ -0,0 +1,75 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class MatlabImageConverterParallelTest {
+
+    @Test
+    public void matchesSerialConverters() throws Exception {
+        int[][] resolutions = {{640, 480}, {1920, 1080}, {333, 97}, {65, 3}, {1, 1}};
+        for (int[] resolution : resolutions) {
+            int width = resolution[0];
+            int height = resolution[1];
+
+            Frame color = randomFrame(width, height, 3, width);
+            assertArrayEquals(width + "x" + height + " color",
+                    convert(new MatlabImageConverterBGR(width, height), color),
+                    convert(new MatlabImageConverterParallel(width, height, 3, MatlabImageConverterParallel.getSharedExecutor(), 4), color));
+
+            Frame gray = randomFrame(width, height, 1, height);
+            assertArrayEquals(width + "x" + height + " gray",
+                    convert(new MatlabImageConverterGrayscale(width, height), gray),
+                    convert(new MatlabImageConverterParallel(width, height, 1, MatlabImageConverterParallel.getSharedExecutor(), 4), gray));
+        }
+    }
+
+    @Test
+    public void throughput() throws Exception {
+        int width = 3840;
+        int height = 2160;
+        int numFrames = 20;
+        Frame frame = randomFrame(width, height, 3, 0);
+        byte[] expected = convert(new MatlabImageConverterFusedBGR(width, height), frame);
+
+        MatlabImageConverter serial = new MatlabImageConverterFusedBGR(width, height);
+        MatlabImageConverter parallel = new MatlabImageConverterParallel(width, height, 3);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length);
+
+        double serialFps = measureFps(serial, frame, buffer, numFrames);
+        double parallelFps = measureFps(parallel, frame, buffer, numFrames);
+        String message = String.format("4K conversion throughput: serial %.1f fps, parallel %.1f fps on %d cores",
+                serialFps, parallelFps, Runtime.getRuntime().availableProcessors());
+        assertTrue(message, serialFps > 0);
+        assertTrue(message, parallelFps > 0.5 * serialFps); // scheduling noise on machines with few cores
+
+        // Frames must stay identical while the pool is busy
+        byte[] actual = new byte[expected.length];
+        buffer.clear();
+        buffer.get(actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    private static double measureFps(MatlabImageConverter converter, Frame frame, ByteBuffer buffer, int numFrames) {
+        for (int i = 0; i < numFrames; i++) {
+            buffer.clear();
+            converter.writeFrameToBuffer(frame, buffer);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < numFrames; i++) {
+            buffer.clear();
+            converter.writeFrameToBuffer(frame, buffer);
+        }
+        return numFrames / ((System.nanoTime() - start) * 1E-9);
+    }
+
+}
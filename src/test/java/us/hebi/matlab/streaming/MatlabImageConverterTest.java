@@ -0,0 +1,83 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.bytedeco.javacpp.opencv_core.*;
+import static org.junit.Assert.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * Checks that all converters write straight into the slots of a shared memory region
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class MatlabImageConverterTest {
+
+    @Test
+    public void writesIntoSharedMemorySlots() throws Exception {
+        int width = 160;
+        int height = 120;
+        assertWritesIntoSlots(new MatlabImageConverterBGR(width, height), randomFrame(width, height, 3, 1));
+        assertWritesIntoSlots(new MatlabImageConverterFusedBGR(width, height), randomFrame(width, height, 3, 2));
+        assertWritesIntoSlots(new MatlabImageConverterParallel(width, height, 3), randomFrame(width, height, 3, 3));
+        assertWritesIntoSlots(new MatlabImageConverterGrayscale(width, height), randomFrame(width, height, 1, 4));
+        assertWritesIntoSlots(new MatlabImageConverterParallel(width, height, 1), randomFrame(width, height, 1, 5));
+    }
+
+    @Test
+    public void keepsViewsForAllSlots() throws Exception {
+        // 3 planes for each of 12 slots don't fit into a fixed cache of 16 entries
+        int numSlots = 12;
+        int planeBytes = 64 * 48;
+        ByteBuffer[] slots = new ByteBuffer[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            slots[i] = ByteBuffer.allocateDirect(3 * planeBytes);
+        }
+
+        MatViews views = new MatViews();
+        Mat[][] mats = new Mat[numSlots][3];
+        for (int i = 0; i < numSlots; i++) {
+            for (int plane = 0; plane < 3; plane++) {
+                mats[i][plane] = views.get(slots[i], plane * planeBytes, 64, 48, CV_8U);
+            }
+        }
+        for (int i = 0; i < numSlots; i++) {
+            for (int plane = 0; plane < 3; plane++) {
+                assertSame(mats[i][plane], views.get(slots[i], plane * planeBytes, 64, 48, CV_8U));
+            }
+        }
+
+        BufferViews bufferViews = new BufferViews();
+        ByteBuffer first = bufferViews.get(slots[0]);
+        for (ByteBuffer slot : slots) {
+            bufferViews.get(slot);
+        }
+        assertSame(first, bufferViews.get(slots[0]));
+    }
+
+    private static void assertWritesIntoSlots(MatlabImageConverter converter, Frame frame) throws Exception {
+        byte[] expected = convert(converter, frame);
+        int headerBytes = 16;
+        SharedMemory memory = SharedMemory.allocate(headerBytes + expected.length, 3);
+        try {
+            for (int slot = 0; slot < memory.getNumSlots(); slot++) {
+                ByteBuffer buffer = memory.clearSlotBuffer(slot);
+                buffer.position(headerBytes);
+                converter.writeFrameToBuffer(frame, buffer);
+                assertEquals(headerBytes + expected.length, buffer.position());
+
+                byte[] actual = new byte[expected.length];
+                buffer.position(headerBytes);
+                buffer.get(actual);
+                assertArrayEquals(converter.getClass().getSimpleName(), expected, actual);
+            }
+        } finally {
+            memory.close();
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class MultiCameraFrameGrabberTest {
+
+    @Test
+    public void publishesMatchedSets() throws Exception {
+        Frame left = randomFrame(64, 48, 3, 0);
+        Frame right = randomFrame(32, 24, 1, 1);
+        TestFrameGrabber leftGrabber = new TestFrameGrabber(left);
+        TestFrameGrabber rightGrabber = new TestFrameGrabber(right);
+        leftGrabber.grabDelayMs = 5;
+        rightGrabber.grabDelayMs = 7;
+
+        double tolerance = 0.010;
+        MultiCameraFrameGrabber grabber = new MultiCameraFrameGrabber(new FrameGrabber[]{leftGrabber, rightGrabber}, tolerance);
+        assertEquals(2, grabber.getNumCameras());
+        assertEquals(1, grabber.getChannels(1));
+
+        byte[] expectedLeft = convert(new MatlabImageConverterFusedBGR(64, 48), left);
+        byte[] expectedRight = convert(new MatlabImageConverterGrayscale(32, 24), right);
+
+        grabber.start();
+        try {
+            long lastSet = 0;
+            for (int i = 0; i < 10; i++) {
+                int slot = grabber.tryGetNextImageSlot();
+                assertTrue(slot >= 0);
+
+                // [set][skew] [frame][timestamp][pixels] [frame][timestamp][pixels]
+                ByteBuffer buffer = grabber.sharedMemory.clearSlotBuffer(slot);
+                long set = buffer.getLong();
+                assertTrue(set > lastSet);
+                lastSet = set;
+                double skew = buffer.getDouble();
+                assertTrue(skew >= 0 && skew <= tolerance);
+
+                buffer.getLong();
+                buffer.getDouble();
+                byte[] actual = new byte[expectedLeft.length];
+                buffer.get(actual);
+                assertArrayEquals(expectedLeft, actual);
+
+                buffer.getLong();
+                buffer.getDouble();
+                actual = new byte[expectedRight.length];
+                buffer.get(actual);
+                assertArrayEquals(expectedRight, actual);
+                assertEquals(buffer.capacity(), buffer.position());
+            }
+            grabber.tryReleaseImageLock();
+        } finally {
+            grabber.stop();
+        }
+        assertEquals(-1, grabber.tryGetNextImageSlot());
+    }
+
+    @Test
+    public void reportsFailedCamera() throws Exception {
+        TestFrameGrabber left = new TestFrameGrabber(randomFrame(64, 48, 3, 0));
+        TestFrameGrabber right = new TestFrameGrabber(randomFrame(64, 48, 3, 1)) {
+            @Override
+            public Frame grab() throws Exception {
+                if (frameNumber >= 5)
+                    throw new Exception("Device unplugged");
+                return super.grab();
+            }
+        };
+        left.grabDelayMs = 2;
+        right.grabDelayMs = 2;
+
+        MultiCameraFrameGrabber grabber = new MultiCameraFrameGrabber(new FrameGrabber[]{left, right}, 0.010);
+        grabber.start();
+        try {
+            // Readers stop waiting once the camera is gone, rather than timing out on every call
+            long deadline = System.currentTimeMillis() + 5000;
+            while (grabber.getError() == null && System.currentTimeMillis() < deadline) {
+                grabber.tryGetNextImageSlot();
+            }
+            assertNotNull(grabber.getError());
+            assertTrue(grabber.getError().getMessage(), grabber.getError().getMessage().startsWith("Camera 2 failed: Device unplugged"));
+            assertEquals(-1, grabber.tryGetNextImageSlot());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+}
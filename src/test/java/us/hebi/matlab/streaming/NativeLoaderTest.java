@@ -0,0 +1,85 @@
+package us.hebi.matlab.streaming;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+import static us.hebi.matlab.streaming.NativeLoader.Backend.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class NativeLoaderTest {
+
+    @Test
+    public void selectsBackendByLocation() throws Exception {
+        assertEquals(OPENCV, NativeLoader.getBackend(new DeviceLocation(1)));
+        assertEquals(OPENCV, NativeLoader.getBackend(new DeviceLocation("/dev/video0")));
+        assertEquals(FFMPEG, NativeLoader.getBackend(new DeviceLocation("rtsp://127.0.0.1/media")));
+        assertEquals(FFMPEG, NativeLoader.getBackend(new DeviceLocation("http://127.0.0.1/video.cgi")));
+    }
+
+    @Test
+    public void loadsRequestedBackend() throws Exception {
+        Future<?> load = NativeLoader.preload(new DeviceLocation(1));
+        try {
+            load.get();
+        } catch (ExecutionException e) {
+            assumeNoException(e.getCause()); // binaries not available on this platform
+        }
+        assertSame(load, NativeLoader.preload(OPENCV));
+
+        // Other tests may have loaded more libraries in the same JVM
+        Map<String, Double> loadTimes = NativeLoader.getLoadTimesMs();
+        assertTrue(loadTimes.containsKey("opencv_core"));
+        assertTrue(loadTimes.containsKey("opencv_videoio"));
+        for (double timeMs : loadTimes.values()) {
+            assertTrue(timeMs >= 0);
+        }
+    }
+
+    @Test
+    public void retriesFailedLoads() throws Exception {
+        Object key = new Object();
+        final AtomicInteger calls = new AtomicInteger(0);
+        Callable<Void> loader = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (calls.incrementAndGet() == 1)
+                    throw new IllegalStateException("Temporary failure");
+                return null;
+            }
+        };
+
+        Future<?> failed = NativeLoader.preload(key, loader);
+        try {
+            failed.get();
+            fail("Load should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // The failure gets removed once the task completes
+        Future<?> retry = failed;
+        for (int i = 0; i < 100 && retry == failed; i++) {
+            retry = NativeLoader.preload(key, loader);
+            if (retry == failed)
+                Thread.sleep(10);
+        }
+        assertNotSame(failed, retry);
+        retry.get();
+        assertEquals(2, calls.get());
+
+        // Successful loads get reused
+        assertSame(retry, NativeLoader.preload(key, loader));
+        assertEquals(2, calls.get());
+    }
+
+}
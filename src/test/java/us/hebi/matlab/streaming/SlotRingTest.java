@@ -0,0 +1,205 @@
+package us.hebi.matlab.streaming;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class SlotRingTest {
+
+    @Test
+    public void writerNeverBlocksOnReader() throws Exception {
+        SlotRing ring = new SlotRing(3);
+        assertEquals(-1, ring.acquireLatestReadSlot());
+
+        // Publish first frame and hold on to it as a reader
+        int first = ring.acquireWriteSlot(0);
+        ring.publish();
+        assertEquals(first, ring.acquireNextReadSlot(0));
+
+        // The writer can keep going without touching the slot being read
+        for (int i = 0; i < 10; i++) {
+            int slot = ring.acquireWriteSlot(0);
+            assertTrue(slot >= 0);
+            assertNotEquals(first, slot);
+            ring.publish();
+        }
+
+        // The reader gets the most recent slot
+        ring.releaseReadSlot();
+        int latest = ring.acquireNextReadSlot(0);
+        assertTrue(latest >= 0);
+        assertEquals(-1, ring.acquireNextReadSlot(0));
+    }
+
+    @Test
+    public void singleSlotWaitsForReader() throws Exception {
+        SlotRing ring = new SlotRing(1);
+        assertEquals(0, ring.acquireWriteSlot(0));
+        ring.publish();
+
+        // Unread frames may be overwritten
+        assertEquals(0, ring.acquireWriteSlot(0));
+        assertEquals(-1, ring.acquireNextReadSlot(0));
+        ring.publish();
+
+        // Frames that are being read may not
+        assertEquals(0, ring.acquireNextReadSlot(0));
+        assertEquals(-1, ring.acquireWriteSlot(10));
+        ring.releaseReadSlot();
+        assertEquals(0, ring.acquireWriteSlot(0));
+    }
+
+    @Test
+    public void closeWakesUpReaders() throws Exception {
+        final SlotRing ring = new SlotRing(3);
+        Thread closer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    ring.close();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        closer.start();
+
+        long start = System.currentTimeMillis();
+        assertEquals(-1, ring.acquireNextReadSlot(10000));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(-1, ring.acquireWriteSlot(0));
+        closer.join();
+    }
+
+    @Test
+    public void waitStrategiesWakeUpReaders() throws Exception {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            final SlotRing frames = new SlotRing(3);
+            final SlotRing acks = new SlotRing(3);
+            frames.setWaitStrategy(strategy);
+            acks.setWaitStrategy(strategy);
+            final int numFrames = 200;
+            final long[] publishNanos = new long[3];
+
+            // Publishes each frame shortly after the reader asks for it, i.e., while spinning readers are still spinning
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < numFrames; i++) {
+                            if (acks.acquireNextReadSlot(1000) < 0)
+                                return;
+                            long publishTime = System.nanoTime() + PUBLISH_DELAY_NANOS;
+                            while (System.nanoTime() - publishTime < 0) {
+                                Thread.yield();
+                            }
+                            int slot = frames.acquireWriteSlot(1000);
+                            publishNanos[slot] = System.nanoTime();
+                            frames.publish();
+                        }
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            producer.start();
+
+            long[] latencyNanos = new long[numFrames];
+            int count = 0;
+            while (count < numFrames) {
+                acks.acquireWriteSlot(0);
+                acks.publish();
+                int slot = frames.acquireNextReadSlot(1000);
+                if (slot < 0)
+                    break;
+                latencyNanos[count++] = System.nanoTime() - publishNanos[slot];
+            }
+            producer.join();
+            frames.releaseReadSlot();
+
+            // Parked readers depend on the scheduler, but readers that are still polling should notice within microseconds
+            assertEquals(strategy + " received all frames", numFrames, count);
+            Arrays.sort(latencyNanos);
+            long median = latencyNanos[numFrames / 2];
+            long maxMedian = strategy == WaitStrategy.BLOCK ? 5 * 1000 * 1000 : 200 * 1000;
+            assertTrue(strategy + " median wake-up latency: " + median + " ns", median < maxMedian);
+        }
+    }
+
+    @Test
+    public void awaitPublishCountSpins() throws Exception {
+        SlotRing ring = new SlotRing(3);
+        ring.setWaitStrategy(WaitStrategy.BUSY_SPIN);
+        assertFalse(ring.awaitPublishCountAbove(0, 10));
+        ring.acquireWriteSlot(0);
+        ring.publish();
+        assertTrue(ring.awaitPublishCountAbove(0, 10));
+        ring.close();
+        assertFalse(ring.awaitPublishCountAbove(1, 1000));
+    }
+
+    @Test
+    public void queueDeliversInOrder() throws Exception {
+        SlotRing ring = new SlotRing(4, DeliveryPolicy.QUEUE_BLOCK);
+        int[] published = new int[3];
+        for (int i = 0; i < published.length; i++) {
+            published[i] = ring.acquireWriteSlot(0);
+            ring.publish();
+        }
+        assertEquals(3, ring.getQueueSize());
+
+        // Hold on to the first frame. The only remaining slot can still be written.
+        assertEquals(published[0], ring.acquireNextReadSlot(0));
+        assertTrue(ring.acquireWriteSlot(0) >= 0);
+        ring.publish();
+
+        // Full queue makes the producer wait rather than overwriting anything
+        assertEquals(-1, ring.acquireWriteSlot(10));
+        assertEquals(published[1], ring.acquireNextReadSlot(0));
+        assertEquals(published[0], ring.acquireWriteSlot(0));
+        ring.abortWrite();
+        assertEquals(published[2], ring.acquireNextReadSlot(0));
+    }
+
+    @Test
+    public void queueDropsOldest() throws Exception {
+        SlotRing ring = new SlotRing(2, DeliveryPolicy.QUEUE_DROP_OLDEST);
+        int first = ring.acquireWriteSlot(0);
+        assertFalse(ring.publish());
+        int second = ring.acquireWriteSlot(0);
+        assertFalse(ring.publish());
+
+        // Replaces the first frame, which makes the second one the oldest
+        assertEquals(first, ring.acquireWriteSlot(0));
+        assertTrue(ring.publish());
+        assertEquals(second, ring.acquireNextReadSlot(0));
+        assertEquals(first, ring.acquireNextReadSlot(0));
+        assertEquals(-1, ring.acquireNextReadSlot(0));
+    }
+
+    @Test
+    public void queueDropsNewest() throws Exception {
+        SlotRing ring = new SlotRing(2, DeliveryPolicy.QUEUE_DROP_NEWEST);
+        int first = ring.acquireWriteSlot(0);
+        ring.publish();
+        int second = ring.acquireWriteSlot(0);
+        ring.publish();
+
+        // Full queue rejects new frames without waiting
+        long start = System.currentTimeMillis();
+        assertEquals(-1, ring.acquireWriteSlot(5000));
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(first, ring.acquireNextReadSlot(0));
+        assertEquals(second, ring.acquireNextReadSlot(0));
+    }
+
+    private static final long PUBLISH_DELAY_NANOS = 20 * 1000; // within the spin time of SPIN_THEN_PARK
+
+}
@@ -0,0 +1,94 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+/**
+ * Grabber that reads raw 8 bit gray frames from a TCP connection, so that network
+ * failures can be tested without a camera. Behaves like FFmpeg in that a read timeout
+ * returns a null frame, while a closed connection throws an exception.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class SocketFrameGrabber extends FrameGrabber {
+
+    SocketFrameGrabber(int port, int width, int height) {
+        this.port = port;
+        this.imageWidth = width;
+        this.imageHeight = height;
+        this.timeout = 200;
+        this.pixels = new byte[width * height];
+        this.frame = new Frame(width, height, Frame.DEPTH_UBYTE, 1);
+    }
+
+    @Override
+    public void start() throws Exception {
+        try {
+            socket = new Socket();
+            socket.connect(new InetSocketAddress("127.0.0.1", port), timeout);
+            socket.setSoTimeout(timeout);
+            input = new DataInputStream(socket.getInputStream());
+        } catch (IOException e) {
+            stop();
+            throw new Exception("Could not connect to port " + port, e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            socket = null;
+        }
+    }
+
+    @Override
+    public void trigger() {
+    }
+
+    @Override
+    public Frame grab() throws Exception {
+        if (socket == null)
+            throw new Exception("Not connected");
+        try {
+            input.readFully(pixels);
+        } catch (SocketTimeoutException e) {
+            return null;
+        } catch (EOFException e) {
+            throw new Exception("Connection closed", e);
+        } catch (IOException e) {
+            throw new Exception("Connection failed", e);
+        }
+        ByteBuffer buffer = (ByteBuffer) frame.image[0];
+        buffer.clear();
+        buffer.put(pixels).clear();
+        frameNumber++;
+        timestamp = System.nanoTime() / 1000;
+        return frame;
+    }
+
+    @Override
+    public void release() {
+        stop();
+    }
+
+    private final int port;
+    private final byte[] pixels;
+    private final Frame frame;
+    private Socket socket;
+    private DataInputStream input;
+
+}
@@ -0,0 +1,159 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static us.hebi.matlab.streaming.TestFrames.*;
+
+/**
+ * Compares the output formats against the equations used by MATLAB's conversion functions
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+public class StandardOutputFormatTest {
+
+    @Test
+    public void grayFromColorMatchesRgb2Gray() throws Exception {
+        Frame frame = randomFrame(width, height, 3, 1);
+        ByteBuffer actual = convert(StandardOutputFormat.GRAY8, frame, width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double expected = 0.298936021293775 * red(frame, x, y)
+                        + 0.587043074451121 * green(frame, x, y)
+                        + 0.114020904255103 * blue(frame, x, y);
+                assertEquals(expected, actual.get(x * height + y) & 0xFF, 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void singleMatchesIm2Single() throws Exception {
+        Frame frame = randomFrame(width, height, 3, 2);
+        ByteBuffer actual = convert(StandardOutputFormat.SINGLE, frame, 3 * 4 * width * height);
+        int plane = width * height;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = 4 * (x * height + y);
+                assertEquals(red(frame, x, y) / 255f, actual.getFloat(i), 1E-6f);
+                assertEquals(green(frame, x, y) / 255f, actual.getFloat(i + 4 * plane), 1E-6f);
+                assertEquals(blue(frame, x, y) / 255f, actual.getFloat(i + 8 * plane), 1E-6f);
+            }
+        }
+    }
+
+    @Test
+    public void mono16CopiesDepthImages() throws Exception {
+        Frame frame = new Frame(width, height, Frame.DEPTH_USHORT, 1);
+        ShortBuffer pixels = (ShortBuffer) frame.image[0];
+        Random random = new Random(3);
+        for (int i = 0; i < pixels.capacity(); i++) {
+            pixels.put(i, (short) random.nextInt(1 << 16));
+        }
+
+        ByteBuffer actual = convert(StandardOutputFormat.MONO16, frame, 2 * width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(pixels.get(y * frame.imageStride + x), actual.getShort(2 * (x * height + y)));
+            }
+        }
+    }
+
+    @Test
+    public void mono16ScalesGrayImages() throws Exception {
+        Frame frame = randomFrame(width, height, 1, 4);
+        ByteBuffer actual = convert(StandardOutputFormat.MONO16, frame, 2 * width * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int gray = ((ByteBuffer) frame.image[0]).get(y * frame.imageStride + x) & 0xFF;
+                assertEquals(gray * 257, actual.getShort(2 * (x * height + y)) & 0xFFFF);
+            }
+        }
+    }
+
+    @Test
+    public void ycbcrMatchesRgb2YCbCr() throws Exception {
+        Frame frame = randomFrame(width, height, 3, 5);
+        ByteBuffer actual = convert(StandardOutputFormat.YCBCR8, frame, 3 * width * height);
+        int plane = width * height;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double r = red(frame, x, y) / 255.0;
+                double g = green(frame, x, y) / 255.0;
+                double b = blue(frame, x, y) / 255.0;
+                int i = x * height + y;
+                assertEquals(16 + 65.481 * r + 128.553 * g + 24.966 * b, actual.get(i) & 0xFF, 1.0);
+                assertEquals(128 - 37.797 * r - 74.203 * g + 112.0 * b, actual.get(i + plane) & 0xFF, 1.0);
+                assertEquals(128 + 112.0 * r - 93.786 * g - 18.214 * b, actual.get(i + 2 * plane) & 0xFF, 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedInputs() throws Exception {
+        assertEquals(0, StandardOutputFormat.RGB8.getOutputChannels(1, Frame.DEPTH_UBYTE));
+        assertEquals(0, StandardOutputFormat.YCBCR8.getOutputChannels(1, Frame.DEPTH_UBYTE));
+        assertEquals(0, StandardOutputFormat.SINGLE.getOutputChannels(3, Frame.DEPTH_USHORT));
+        assertEquals(1, StandardOutputFormat.GRAY8.getOutputChannels(3, Frame.DEPTH_UBYTE));
+        assertEquals(1, StandardOutputFormat.MONO16.getOutputChannels(1, Frame.DEPTH_USHORT));
+    }
+
+    @Test
+    public void findsFormatsByName() throws Exception {
+        assertSame(StandardOutputFormat.SINGLE, MatlabImageConverters.get("Single"));
+        assertTrue(MatlabImageConverters.getNames().contains("ycbcr8"));
+        try {
+            MatlabImageConverters.get("hsv");
+            fail("Expected unknown format to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void headerDescribesFormat() throws Exception {
+        TestFrameGrabber source = new TestFrameGrabber(randomFrame(width, height, 3, 6));
+        BackgroundFrameGrabber grabber = new BackgroundFrameGrabber(source, 3, DeliveryPolicy.LATEST, "single");
+        try {
+            assertEquals(3, grabber.getChannels());
+            assertEquals("single", grabber.getMatlabClass());
+            assertEquals(32 + 3 * 4 * width * height, grabber.getSlotBytes());
+
+            ByteBuffer header = grabber.sharedMemory.clearHeaderBuffer();
+            header.position(BackgroundFrameGrabber.SEQUENCE_OFFSET + 3 * 8);
+            byte[] matlabClass = new byte[8];
+            header.get(matlabClass);
+            assertEquals("single", new String(matlabClass, "US-ASCII").trim());
+            assertEquals(3, header.getInt());
+            assertEquals(4, header.getInt());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    private static ByteBuffer convert(StandardOutputFormat format, Frame frame, int numBytes) {
+        MatlabImageConverter converter = format.create(frame.imageWidth, frame.imageHeight, frame.imageChannels, false);
+        return ByteBuffer.wrap(TestFrames.convert(converter, frame, numBytes)).order(ByteOrder.nativeOrder());
+    }
+
+    private static int red(Frame frame, int x, int y) {
+        return ((ByteBuffer) frame.image[0]).get(y * frame.imageStride + 3 * x + 2) & 0xFF;
+    }
+
+    private static int green(Frame frame, int x, int y) {
+        return ((ByteBuffer) frame.image[0]).get(y * frame.imageStride + 3 * x + 1) & 0xFF;
+    }
+
+    private static int blue(Frame frame, int x, int y) {
+        return ((ByteBuffer) frame.image[0]).get(y * frame.imageStride + 3 * x) & 0xFF;
+    }
+
+    private final int width = 37; // padded rows
+    private final int height = 23;
+
+}
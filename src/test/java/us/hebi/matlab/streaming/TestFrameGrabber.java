@@ -0,0 +1,60 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+/**
+ * Grabber that cycles through pre-generated frames, so that the acquisition
+ * can be tested without a camera. A null entry simulates a stream hiccup.
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class TestFrameGrabber extends FrameGrabber {
+
+    TestFrameGrabber(Frame... frames) {
+        this.frames = frames;
+        this.imageWidth = frames[frames.length - 1].imageWidth;
+        this.imageHeight = frames[frames.length - 1].imageHeight;
+        this.timeout = 1000;
+    }
+
+    @Override
+    public void start() throws Exception {
+        try {
+            if (startDelayMs > 0)
+                Thread.sleep(startDelayMs);
+        } catch (InterruptedException e) {
+            throw new Exception("Interrupted", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void trigger() {
+    }
+
+    @Override
+    public Frame grab() throws Exception {
+        try {
+            if (grabDelayMs > 0)
+                Thread.sleep(grabDelayMs);
+        } catch (InterruptedException e) {
+            throw new Exception("Interrupted", e);
+        }
+        timestamp = System.nanoTime() / 1000;
+        return frames[frameNumber++ % frames.length];
+    }
+
+    @Override
+    public void release() {
+    }
+
+    volatile long startDelayMs = 0; // simulates connecting to a remote source
+    volatile long grabDelayMs = 0;
+    volatile Frame[] frames; // may be replaced to simulate changing streams
+
+}
@@ -0,0 +1,55 @@
+package us.hebi.matlab.streaming;
+
+import org.bytedeco.javacv.Frame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Synthetic frames for tests and benchmarks
+ *
+ * @author Florian Enner < florian @ hebirobotics.com >
+ * @since 17 Oct 2026
+ */
+class TestFrames {
+
+    /**
+     * @return 8 bit frame with random pixels. Note that rows get padded to 8 bytes.
+     */
+    static Frame randomFrame(int width, int height, int channels, long seed) {
+        Frame frame = new Frame(width, height, Frame.DEPTH_UBYTE, channels);
+        ByteBuffer pixels = (ByteBuffer) frame.image[0];
+        byte[] data = new byte[pixels.capacity()];
+        new Random(seed).nextBytes(data);
+        pixels.clear();
+        pixels.put(data).clear();
+        return frame;
+    }
+
+    /**
+     * @return MATLAB formatted pixels
+     */
+    static byte[] convert(MatlabImageConverter converter, Frame frame) {
+        return convert(converter, frame, frame.imageWidth * frame.imageHeight * frame.imageChannels);
+    }
+
+    /**
+     * @param numBytes expected size of the output
+     * @return MATLAB formatted data in native byte order
+     */
+    static byte[] convert(MatlabImageConverter converter, Frame frame, int numBytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(numBytes).order(ByteOrder.nativeOrder());
+        converter.writeFrameToBuffer(frame, buffer);
+        if (buffer.position() != numBytes)
+            throw new AssertionError("Converter did not fill buffer");
+        byte[] result = new byte[numBytes];
+        buffer.clear();
+        buffer.get(result);
+        return result;
+    }
+
+    private TestFrames() {
+    }
+
+}